@@ -0,0 +1,154 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer.benchmark;
+
+import com.oprisnik.navdrawer.AllocationCounter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Minimal JMH-style harness: every operation is warmed up first and then measured
+ * for a number of iterations. The average time and the allocated bytes per operation are reported.
+ */
+public final class MicroBenchmark {
+
+    public interface Operation {
+        /**
+         * Run the benchmarked operation once.
+         *
+         * @param iteration the current iteration, can be used to alternate the input
+         */
+        public void run(int iteration);
+    }
+
+    public static final class Result {
+        private final String mName;
+        private final int mSize;
+        private final int mIterations;
+        private final double mNanosPerOp;
+        private final long mBytesPerOp;
+
+        private Result(String name, int size, int iterations, double nanosPerOp, long bytesPerOp) {
+            mName = name;
+            mSize = size;
+            mIterations = iterations;
+            mNanosPerOp = nanosPerOp;
+            mBytesPerOp = bytesPerOp;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public int getSize() {
+            return mSize;
+        }
+
+        public double getNanosPerOp() {
+            return mNanosPerOp;
+        }
+
+        /**
+         * @return the allocated bytes per operation or -1 if the JVM does not support allocation counting
+         */
+        public long getBytesPerOp() {
+            return mBytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-22s %6d %8d %14.1f %14s", mName, mSize, mIterations,
+                    mNanosPerOp / 1000d, mBytesPerOp < 0 ? "n/a" : String.valueOf(mBytesPerOp));
+        }
+    }
+
+    private final List<Result> mResults = new ArrayList<Result>();
+
+    private final int mWarmupIterations;
+    private final int mMeasuredIterations;
+
+    // null if the JVM does not support allocation counting
+    private final AllocationCounter mCounter;
+
+    /**
+     * @param warmupIterations   iterations that are run before measuring
+     * @param measuredIterations iterations that are measured
+     */
+    public MicroBenchmark(int warmupIterations, int measuredIterations) {
+        mWarmupIterations = warmupIterations;
+        mMeasuredIterations = measuredIterations;
+        mCounter = AllocationCounter.isSupported() ? new AllocationCounter() : null;
+    }
+
+    /**
+     * Warm up and measure the given operation.
+     *
+     * @param name      the name of the operation
+     * @param size      the number of drawer entries
+     * @param operation the operation
+     * @return the result, which is also added to the report
+     */
+    public Result measure(String name, int size, Operation operation) {
+        // scale the iterations down for large drawers to keep the run time reasonable
+        int warmup = Math.max(1, mWarmupIterations * 10 / Math.max(10, size));
+        int iterations = Math.max(3, mMeasuredIterations * 10 / Math.max(10, size));
+
+        for (int i = 0; i < warmup; i++) {
+            operation.run(i);
+        }
+        System.gc();
+
+        if (mCounter != null) {
+            mCounter.reset();
+            mCounter.resume();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            operation.run(warmup + i);
+        }
+        long nanos = System.nanoTime() - start;
+        if (mCounter != null) {
+            mCounter.pause();
+        }
+
+        long bytesPerOp = mCounter != null ? mCounter.getBytes() / iterations : -1;
+        Result result = new Result(name, size, iterations, nanos / (double) iterations, bytesPerOp);
+        mResults.add(result);
+        return result;
+    }
+
+    public List<Result> getResults() {
+        return mResults;
+    }
+
+    /**
+     * Get a table with all results measured so far.
+     *
+     * @return the report
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "%-22s %6s %8s %14s %14s%n",
+                "Benchmark", "Size", "Iters", "us/op", "bytes/op"));
+        for (Result result : mResults) {
+            sb.append(result).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer.widget;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import com.oprisnik.navdrawer.NavDrawerDataProvider;
+import com.oprisnik.navdrawer.R;
+import com.oprisnik.navdrawer.benchmark.BuildConfig;
+import com.oprisnik.navdrawer.benchmark.MicroBenchmark;
+import com.oprisnik.navdrawer.entry.NavDrawerEntry;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Micro benchmarks for the hot paths of {@link NavDrawerLayout}:
+ * building the rows, incremental updates, entry clicks and row formatting.
+ * The results are printed when all benchmarks are done.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class NavDrawerLayoutJvmBenchmark {
+
+    private static final int[] DRAWER_SIZES = {10, 100, 1000};
+
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final int MEASURED_ITERATIONS = 200;
+
+    private static final MicroBenchmark sBenchmark = new MicroBenchmark(WARMUP_ITERATIONS, MEASURED_ITERATIONS);
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = new ContextThemeWrapper(RuntimeEnvironment.application, R.style.Theme_AppCompat_Light);
+    }
+
+    @AfterClass
+    public static void printResults() {
+        System.out.println(sBenchmark.report());
+    }
+
+    @Test
+    public void createNavDrawerItems() {
+        for (int size : DRAWER_SIZES) {
+            final NavDrawerLayout layout = createLayout(new BenchmarkDataProvider(size));
+            sBenchmark.measure("createNavDrawerItems", size, new MicroBenchmark.Operation() {
+                @Override
+                public void run(int iteration) {
+                    layout.createNavDrawerItems();
+                }
+            });
+        }
+    }
+
+    @Test
+    public void updateItems() {
+        for (int size : DRAWER_SIZES) {
+            final BenchmarkDataProvider provider = new BenchmarkDataProvider(size);
+            final NavDrawerLayout layout = createLayout(provider);
+            sBenchmark.measure("updateItems", size, new MicroBenchmark.Operation() {
+                @Override
+                public void run(int iteration) {
+                    // replace the middle entry and move the selection
+                    provider.swapMiddleEntry();
+                    provider.mSelected = provider.mEntries.get(iteration % 2);
+                    layout.updateItems();
+                }
+            });
+        }
+    }
+
+    @Test
+    public void onEntrySelected() {
+        for (int size : DRAWER_SIZES) {
+            final BenchmarkDataProvider provider = new BenchmarkDataProvider(size);
+            final NavDrawerLayout layout = createLayout(provider);
+            final View first = layout.getEntryView(provider.mEntries.get(1).getId());
+            final View second = layout.getEntryView(provider.mEntries.get(2).getId());
+            assertNotNull(first);
+            assertNotNull(second);
+            sBenchmark.measure("onEntrySelected", size, new MicroBenchmark.Operation() {
+                @Override
+                public void run(int iteration) {
+                    // goes through the row click listener to the internal navigation listener
+                    (iteration % 2 == 0 ? first : second).performClick();
+                }
+            });
+        }
+    }
+
+    @Test
+    public void formatView() {
+        for (int size : DRAWER_SIZES) {
+            final BenchmarkDataProvider provider = new BenchmarkDataProvider(size);
+            final NavDrawerLayout layout = createLayout(provider);
+            final NavDrawerEntry entry = provider.mEntries.get(size / 2);
+            final View view = layout.getEntryView(entry.getId());
+            assertNotNull(view);
+            sBenchmark.measure("formatView", size, new MicroBenchmark.Operation() {
+                @Override
+                public void run(int iteration) {
+                    entry.formatView(mContext, view, iteration % 2 == 0);
+                }
+            });
+        }
+    }
+
+    private NavDrawerLayout createLayout(NavDrawerDataProvider provider) {
+        NavDrawerLayout layout = new NavDrawerLayout(mContext);
+        layout.onFinishInflate();
+        layout.setDataProvider(provider);
+        return layout;
+    }
+
+    private static class BenchmarkDataProvider implements NavDrawerDataProvider {
+
+        private final List<NavDrawerEntry> mEntries = new ArrayList<NavDrawerEntry>();
+
+        private NavDrawerEntry mSelected;
+
+        BenchmarkDataProvider(int size) {
+            for (int i = 0; i < size; i++) {
+                mEntries.add(createEntry(i + 1));
+            }
+            mSelected = mEntries.get(0);
+        }
+
+        void swapMiddleEntry() {
+            int middle = mEntries.size() / 2;
+            mEntries.set(middle, createEntry(mEntries.get(middle).getId()));
+        }
+
+        private static NavDrawerEntry createEntry(int id) {
+            return new NavDrawerEntry.Builder()
+                    .setId(id)
+                    .setTitleResId(android.R.string.ok)
+                    .setIconResId(R.drawable.ic_settings_black_24dp)
+                    // notify the listener right away, the benchmark does not run the looper
+                    .setLaunchDelayed(false)
+                    .setFadeOutContent(false)
+                    .build();
+        }
+
+        @Override
+        public List<NavDrawerEntry> getNavDrawerItems() {
+            return mEntries;
+        }
+
+        @Override
+        public NavDrawerEntry getSelectedNavDrawerItem() {
+            return mSelected;
+        }
+    }
+}
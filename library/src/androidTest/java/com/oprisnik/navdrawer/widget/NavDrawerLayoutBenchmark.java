@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer.widget;
+
+import android.content.Context;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.oprisnik.navdrawer.NavDrawerDataProvider;
+import com.oprisnik.navdrawer.R;
+import com.oprisnik.navdrawer.entry.NavDrawerEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the number of inflated rows and the retained heap of the default and the
+ * virtualized drawer for different drawer sizes. Results are written to logcat.
+ */
+public class NavDrawerLayoutBenchmark extends AndroidTestCase {
+
+    private static final String TAG = "NavDrawerBenchmark";
+
+    private static final int[] DRAWER_SIZES = {10, 120, 500};
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    private Context mContext;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext = new ContextThemeWrapper(getContext(), R.style.Theme_AppCompat_Light);
+    }
+
+    public void testInflationCountAndHeap() {
+        for (int size : DRAWER_SIZES) {
+            Result full = measure(size, false);
+            Result virtualized = measure(size, true);
+            Log.i(TAG, String.format("%4d entries | default: %4d inflations, %7d KB | virtualized: %4d inflations, %7d KB",
+                    size, full.inflations, full.heapBytes / 1024, virtualized.inflations, virtualized.heapBytes / 1024));
+
+            assertEquals(size, full.inflations);
+            assertTrue(virtualized.inflations <= full.inflations);
+            if (size > getMaxVisibleRows()) {
+                // only the rows of the visible window are inflated
+                assertTrue(virtualized.inflations + " inflations for " + size + " entries, visible rows: "
+                        + getMaxVisibleRows(), virtualized.inflations <= getMaxVisibleRows());
+                assertTrue(virtualized.inflations < size / 2);
+            }
+        }
+    }
+
+    /**
+     * @return the number of rows that fit into the drawer, plus partially visible rows
+     */
+    private int getMaxVisibleRows() {
+        int rowHeight = mContext.getResources().getDimensionPixelSize(R.dimen.navdrawer_item_height);
+        // + a partially visible row at the top and the bottom
+        return HEIGHT / rowHeight + 2;
+    }
+
+    private Result measure(int size, boolean virtualized) {
+        CountingDataProvider provider = new CountingDataProvider(size);
+
+        long heapBefore = usedHeap();
+        NavDrawerLayout layout = new NavDrawerLayout(mContext);
+        layout.setVirtualized(virtualized);
+        layout.onFinishInflate();
+        layout.setDataProvider(provider);
+        layout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        layout.layout(0, 0, WIDTH, HEIGHT);
+        long heapAfter = usedHeap();
+
+        Result result = new Result();
+        result.inflations = provider.mInflations;
+        result.heapBytes = Math.max(0, heapAfter - heapBefore);
+        // keep the layout reachable until the heap has been measured
+        assertNotNull(layout.getChildAt(0));
+        return result;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            runtime.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static class Result {
+        int inflations;
+        long heapBytes;
+    }
+
+    private static class CountingDataProvider implements NavDrawerDataProvider {
+
+        private final List<NavDrawerEntry> mEntries = new ArrayList<NavDrawerEntry>();
+
+        private int mInflations;
+
+        CountingDataProvider(int size) {
+            for (int i = 0; i < size; i++) {
+                mEntries.add(new NavDrawerEntry(android.R.string.ok, R.drawable.ic_settings_black_24dp) {
+                    @Override
+                    public View inflateView(Context context, ViewGroup container) {
+                        mInflations++;
+                        return super.inflateView(context, container);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public List<NavDrawerEntry> getNavDrawerItems() {
+            return mEntries;
+        }
+
+        @Override
+        public NavDrawerEntry getSelectedNavDrawerItem() {
+            return mEntries.get(0);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer;
+
+import com.oprisnik.navdrawer.widget.NavDrawerAvatarLoader;
+
+/**
+ * Account that can be displayed in the navigation drawer header, see {@link NavDrawerAccountProvider}.
+ */
+public class NavDrawerAccount {
+
+    private final int mId;
+    private final String mName;
+    private final String mEmail;
+    private final NavDrawerAvatarLoader.Source mAvatar;
+
+    /**
+     * @param id     the stable, unique ID of the account
+     * @param name   the name of the account
+     * @param email  the email address or another subtitle
+     * @param avatar the avatar or null for the default avatar
+     */
+    public NavDrawerAccount(int id, String name, String email, NavDrawerAvatarLoader.Source avatar) {
+        mId = id;
+        mName = name;
+        mEmail = email;
+        mAvatar = avatar;
+    }
+
+    public int getId() {
+        return mId;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public String getEmail() {
+        return mEmail;
+    }
+
+    public NavDrawerAvatarLoader.Source getAvatar() {
+        return mAvatar;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof NavDrawerAccount && ((NavDrawerAccount) o).mId == mId;
+    }
+
+    @Override
+    public int hashCode() {
+        return mId;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer;
+
+import java.util.List;
+
+/**
+ * Data provider for navigation drawers with multiple accounts.
+ * The default header displays the active account. Clicking it expands the list of accounts.
+ * The navigation drawer entries can differ per account: when the user switches accounts,
+ * the entries are updated incrementally.
+ */
+public interface NavDrawerAccountProvider extends NavDrawerDataProvider {
+
+    public List<NavDrawerAccount> getNavDrawerAccounts();
+
+    public NavDrawerAccount getActiveNavDrawerAccount();
+
+    /**
+     * Called when the user selects an account. Afterwards, {@link #getActiveNavDrawerAccount()}
+     * and {@link #getNavDrawerItems()} should return the values for the new account.
+     *
+     * @param account the selected account
+     */
+    public void onNavDrawerAccountSelected(NavDrawerAccount account);
+}
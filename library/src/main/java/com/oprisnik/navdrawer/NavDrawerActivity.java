@@ -21,6 +21,7 @@ import android.animation.ObjectAnimator;
 import android.animation.TypeEvaluator;
 import android.animation.ValueAnimator;
 import android.annotation.TargetApi;
+import android.content.res.Configuration;
 import android.graphics.PorterDuff;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
@@ -31,19 +32,47 @@ import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.oprisnik.navdrawer.entry.NavDrawerEntry;
+import com.oprisnik.navdrawer.widget.NavDrawerFirstRun;
 import com.oprisnik.navdrawer.widget.NavDrawerLayout;
 
-public abstract class NavDrawerActivity extends ActionBarActivity implements NavDrawerLayout.NavigationListener, NavDrawerDataProvider {
+public abstract class NavDrawerActivity extends ActionBarActivity implements NavDrawerLayout.PrefetchListener, NavDrawerDataProvider {
 
     protected static final TypeEvaluator ARGB_EVALUATOR = new ArgbEvaluator();
 
     private NavDrawerLayout mDrawerLayout;
 
+    private int mThemeResId = 0;
+
     private ValueAnimator mStatusBarColorAnimator;
 
     protected boolean mUpNavigation = true;
 
 
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        // read the first-run flag in the background while the content view is inflated
+        NavDrawerFirstRun.preload(this);
+        super.onCreate(savedInstanceState);
+    }
+
+    /**
+     * Get the theme set with {@link #setTheme(int)}.
+     *
+     * @return the theme resource ID or 0 if the theme of the manifest is used
+     */
+    public int getNavDrawerThemeResId() {
+        return mThemeResId;
+    }
+
+    @Override
+    public void setTheme(int resid) {
+        mThemeResId = resid;
+        super.setTheme(resid);
+        // the theme object is modified, the cached colors are outdated
+        ThemeColors.invalidate();
+    }
+
     @Override
     protected void onPostCreate(Bundle savedInstanceState) {
         super.onPostCreate(savedInstanceState);
@@ -64,17 +93,34 @@ public abstract class NavDrawerActivity extends ActionBarActivity implements Nav
         mDrawerLayout.setDataProvider(this);
     }
 
+    /**
+     * Called as soon as an entry is clicked, while the drawer is still closing.
+     * Override to prepare the next screen, e.g. to start loading its data.
+     *
+     * @param entry the clicked entry
+     */
+    @Override
+    public void onEntryWillLaunch(NavDrawerEntry entry) {
+        // nothing to prepare by default
+    }
+
     public void showUpNavigation(boolean show) {
         mUpNavigation = show;
         getSupportActionBar().setDisplayHomeAsUpEnabled(true);
         getSupportActionBar().setHomeButtonEnabled(true);
 
         Drawable drawable = getResources().getDrawable(show ? R.drawable.ic_back : R.drawable.ic_menu);
-        int colorControlNormal = Utils.getAttrColor(R.attr.colorControlNormal, getSupportActionBar().getThemedContext());
+        int colorControlNormal = ThemeColors.get(getSupportActionBar().getThemedContext()).getColorControlNormal();
         drawable.setColorFilter(colorControlNormal, PorterDuff.Mode.SRC_IN);
         getSupportActionBar().setHomeAsUpIndicator(drawable);
     }
 
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        ThemeColors.invalidate();
+    }
+
     public boolean hasUpNavigation() {
         return mUpNavigation;
     }
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer;
+
+import android.os.Bundle;
+import android.support.annotation.IdRes;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+
+import com.oprisnik.navdrawer.entry.NavDrawerEntry;
+import com.oprisnik.navdrawer.widget.NavDrawerLayout;
+
+/**
+ * Navigation drawer activity that shows the content of its entries as fragments.
+ * Instead of starting a new activity for every entry, the fragment in the content container is replaced,
+ * so the navigation drawer with its header and entries stays alive and navigating only creates the new content.
+ * <p/>
+ * The layout of the activity has to contain a container with the ID <code>navdrawer_fragment_container</code>
+ * (see {@link #getFragmentContainerId()}). Entries with {@link NavDrawerEntry#fadeOutContent()} are faded out
+ * when they are clicked. The new fragment is shown once the content is faded out and then faded in.
+ * <p/>
+ * The selected entry is restored after a configuration change or process death only if it has an explicit ID
+ * (see {@link NavDrawerEntry#setId(int)}), otherwise the initial entry is shown again.
+ */
+public abstract class NavDrawerFragmentActivity extends NavDrawerActivity {
+
+    private static final String STATE_SELECTED_ENTRY_ID = "navdrawer:selectedEntryId";
+
+    private NavDrawerEntry mSelectedEntry;
+
+    /**
+     * Get the entry that is shown when the activity is started.
+     *
+     * @return the initial entry
+     */
+    protected abstract NavDrawerEntry getInitialNavDrawerEntry();
+
+    /**
+     * Create the content fragment of the given entry.
+     *
+     * @param entry the entry
+     * @return the fragment or null if the entry does not have content in this activity,
+     * e.g. because it starts another activity
+     */
+    protected abstract Fragment createFragment(NavDrawerEntry entry);
+
+    /**
+     * Get the ID of the view that holds the content fragment.
+     *
+     * @return the container ID
+     */
+    @IdRes
+    protected int getFragmentContainerId() {
+        return R.id.navdrawer_fragment_container;
+    }
+
+    @Override
+    protected void onPostCreate(Bundle savedInstanceState) {
+        // the drawer asks for the selected entry when it is set up
+        if (savedInstanceState != null && savedInstanceState.containsKey(STATE_SELECTED_ENTRY_ID)) {
+            mSelectedEntry = findEntry(savedInstanceState.getInt(STATE_SELECTED_ENTRY_ID));
+        }
+        boolean restored = mSelectedEntry != null;
+        if (mSelectedEntry == null) {
+            mSelectedEntry = getInitialNavDrawerEntry();
+        }
+        super.onPostCreate(savedInstanceState);
+
+        FragmentManager fragmentManager = getSupportFragmentManager();
+        Fragment current = fragmentManager.findFragmentById(getFragmentContainerId());
+        // a restored fragment is only kept if it belongs to the restored entry
+        if (mSelectedEntry != null && (!restored || current == null
+                || !getFragmentTag(mSelectedEntry).equals(current.getTag()))) {
+            Fragment fragment = createFragment(mSelectedEntry);
+            if (fragment != null) {
+                fragmentManager.beginTransaction()
+                        .replace(getFragmentContainerId(), fragment, getFragmentTag(mSelectedEntry))
+                        .commit();
+            }
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        // generated IDs depend on the order in which entries are created and cannot be restored
+        if (mSelectedEntry != null && mSelectedEntry.getId() < NavDrawerEntry.FIRST_GENERATED_ID) {
+            outState.putInt(STATE_SELECTED_ENTRY_ID, mSelectedEntry.getId());
+        }
+    }
+
+    @Override
+    public NavDrawerEntry getSelectedNavDrawerItem() {
+        return mSelectedEntry;
+    }
+
+    /**
+     * Replace the content with the fragment of the given entry. Override this to handle entries
+     * without content, e.g. to start another activity, and call through for all other entries.
+     *
+     * @param entry the selected entry
+     */
+    @Override
+    public void onEntrySelected(NavDrawerEntry entry) {
+        Fragment fragment = createFragment(entry);
+        if (fragment != null) {
+            showFragment(entry, fragment);
+        } else if (getDrawerLayout() != null) {
+            // the content might have been faded out on click
+            getDrawerLayout().fadeInContent();
+        }
+    }
+
+    /**
+     * Show the given fragment as content of the given entry and select the entry.
+     * If the content is still being faded out, the fragment is replaced once the fade is over,
+     * even if it is cancelled.
+     *
+     * @param entry    the entry
+     * @param fragment the content fragment
+     */
+    public void showFragment(final NavDrawerEntry entry, final Fragment fragment) {
+        mSelectedEntry = entry;
+        final NavDrawerLayout drawerLayout = getDrawerLayout();
+        if (drawerLayout == null) {
+            replaceFragment(entry, fragment);
+            return;
+        }
+        drawerLayout.setSelectedEntry(entry);
+        if (drawerLayout.isFadingOutContent()) {
+            // a fade-in, e.g. because the current entry is clicked again, cancels the fade-out
+            drawerLayout.runAfterContentFade(new Runnable() {
+                @Override
+                public void run() {
+                    if (entry != mSelectedEntry) {
+                        return; // replaced by a newer entry
+                    }
+                    replaceFragment(entry, fragment);
+                    drawerLayout.fadeInContent();
+                }
+            });
+        } else {
+            replaceFragment(entry, fragment);
+            drawerLayout.fadeInContent();
+        }
+    }
+
+    private void replaceFragment(NavDrawerEntry entry, Fragment fragment) {
+        FragmentManager fragmentManager = getSupportFragmentManager();
+        // not added to the back stack, drawer entries are top-level destinations.
+        // The delayed launch can run after the state has been saved, the selected entry is saved separately.
+        fragmentManager.beginTransaction()
+                .replace(getFragmentContainerId(), fragment, getFragmentTag(entry))
+                .commitAllowingStateLoss();
+        // create the view of the new fragment before the content is faded in
+        fragmentManager.executePendingTransactions();
+    }
+
+    /**
+     * Get the content fragment of the selected entry.
+     *
+     * @return the fragment or null
+     */
+    public Fragment getContentFragment() {
+        return getSupportFragmentManager().findFragmentById(getFragmentContainerId());
+    }
+
+    private NavDrawerEntry findEntry(int id) {
+        if (id >= NavDrawerEntry.FIRST_GENERATED_ID) {
+            return null;
+        }
+        NavDrawerModel model = this instanceof NavDrawerModelProvider
+                ? ((NavDrawerModelProvider) this).getNavDrawerModel()
+                : NavDrawerModel.compile(this);
+        int position = model.indexOfId(id);
+        return position >= 0 ? model.get(position) : null;
+    }
+
+    private static String getFragmentTag(NavDrawerEntry entry) {
+        return "navdrawer:" + entry.getId();
+    }
+}
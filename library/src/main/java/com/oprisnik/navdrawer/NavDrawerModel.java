@@ -0,0 +1,219 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer;
+
+import android.support.annotation.LayoutRes;
+import android.util.SparseIntArray;
+
+import com.oprisnik.navdrawer.entry.NavDrawerEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable, precompiled navigation drawer structure.
+ * The properties of all entries are captured when the model is compiled, so the model can be
+ * shared between all activities as long as the entries are not modified afterwards.
+ */
+public final class NavDrawerModel {
+
+    public static final NavDrawerModel EMPTY = compile(Collections.<NavDrawerEntry>emptyList());
+
+    private final List<NavDrawerEntry> mEntries;
+
+    // entry ID -> position
+    private final SparseIntArray mPositions;
+
+    @LayoutRes
+    private final int[] mLayoutResIds;
+    private final int[] mViewTypes;
+    // view type -> layout resource ID
+    private final int[] mViewTypeLayoutResIds;
+
+    private final boolean[] mClickable;
+    private final boolean[] mSelectOnClick;
+    private final boolean[] mLaunchDelayed;
+    private final boolean[] mFadeOutContent;
+
+    private NavDrawerModel(List<NavDrawerEntry> entries) {
+        int size = entries.size();
+        mEntries = Collections.unmodifiableList(Arrays.asList(entries.toArray(new NavDrawerEntry[size])));
+        mPositions = new SparseIntArray(size);
+        mLayoutResIds = new int[size];
+        mViewTypes = new int[size];
+        mClickable = new boolean[size];
+        mSelectOnClick = new boolean[size];
+        mLaunchDelayed = new boolean[size];
+        mFadeOutContent = new boolean[size];
+
+        SparseIntArray viewTypes = new SparseIntArray();
+        for (int i = 0; i < size; i++) {
+            NavDrawerEntry entry = mEntries.get(i);
+            int previous = mPositions.get(entry.getId(), -1);
+            if (previous >= 0) {
+                // rows are matched by ID, e.g. when the model is updated
+                throw new IllegalArgumentException("The entries at position " + previous + " and " + i
+                        + " have the same ID " + entry.getId() + ", IDs have to be unique"
+                        + " (an entry instance must not be added twice)");
+            }
+            mPositions.put(entry.getId(), i);
+            int layoutResId = entry.getLayoutResId();
+            if (viewTypes.indexOfKey(layoutResId) < 0) {
+                viewTypes.put(layoutResId, viewTypes.size());
+            }
+            mLayoutResIds[i] = layoutResId;
+            mViewTypes[i] = viewTypes.get(layoutResId);
+            mClickable[i] = entry.isClickable();
+            mSelectOnClick[i] = entry.selectOnClick();
+            mLaunchDelayed[i] = entry.launchDelayed();
+            mFadeOutContent[i] = entry.fadeOutContent();
+        }
+        mViewTypeLayoutResIds = new int[viewTypes.size()];
+        for (int i = 0; i < viewTypes.size(); i++) {
+            mViewTypeLayoutResIds[viewTypes.valueAt(i)] = viewTypes.keyAt(i);
+        }
+    }
+
+    /**
+     * Compile the given entries.
+     *
+     * @param entries the navigation drawer entries
+     * @return the model
+     * @throws IllegalArgumentException if two entries have the same ID
+     */
+    public static NavDrawerModel compile(List<NavDrawerEntry> entries) {
+        return new NavDrawerModel(entries);
+    }
+
+    /**
+     * Compile the entries of the given data provider.
+     *
+     * @param dataProvider the data provider
+     * @return the model
+     */
+    public static NavDrawerModel compile(NavDrawerDataProvider dataProvider) {
+        return compile(dataProvider.getNavDrawerItems());
+    }
+
+    /**
+     * Build and compile the given entries.
+     *
+     * @param builders the builders of the navigation drawer entries
+     * @return the model
+     */
+    public static NavDrawerModel compileBuilders(List<NavDrawerEntry.Builder> builders) {
+        List<NavDrawerEntry> entries = new ArrayList<NavDrawerEntry>(builders.size());
+        for (NavDrawerEntry.Builder builder : builders) {
+            entries.add(builder.build());
+        }
+        return compile(entries);
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    public NavDrawerEntry get(int position) {
+        return mEntries.get(position);
+    }
+
+    /**
+     * Get all entries.
+     *
+     * @return an unmodifiable list of the entries
+     */
+    public List<NavDrawerEntry> getEntries() {
+        return mEntries;
+    }
+
+    /**
+     * Get the position of the given entry.
+     *
+     * @param entry the entry
+     * @return the position or -1 if the model does not contain the entry
+     */
+    public int indexOf(NavDrawerEntry entry) {
+        int position = indexOfId(entry.getId());
+        return position >= 0 && mEntries.get(position) == entry ? position : -1;
+    }
+
+    /**
+     * Get the position of the entry with the given ID.
+     *
+     * @param id the entry ID
+     * @return the position or -1 if the model does not contain an entry with this ID
+     */
+    public int indexOfId(int id) {
+        return mPositions.get(id, -1);
+    }
+
+    public boolean contains(NavDrawerEntry entry) {
+        return indexOf(entry) >= 0;
+    }
+
+    public boolean containsId(int id) {
+        return indexOfId(id) >= 0;
+    }
+
+    @LayoutRes
+    public int getLayoutResId(int position) {
+        return mLayoutResIds[position];
+    }
+
+    /**
+     * Get the view type of the entry at the given position. Entries with the same layout share a view type.
+     *
+     * @param position the position
+     * @return the view type, between 0 and {@link #getViewTypeCount()} - 1
+     */
+    public int getViewType(int position) {
+        return mViewTypes[position];
+    }
+
+    public int getViewTypeCount() {
+        return mViewTypeLayoutResIds.length;
+    }
+
+    /**
+     * Check whether the given model has the same view types, i.e. whether views of this model can be
+     * recycled for the given model by view type.
+     *
+     * @param other the other model
+     * @return true if both models map the same layouts to the same view types
+     */
+    public boolean hasSameViewTypes(NavDrawerModel other) {
+        return Arrays.equals(mViewTypeLayoutResIds, other.mViewTypeLayoutResIds);
+    }
+
+    public boolean isClickable(int position) {
+        return mClickable[position];
+    }
+
+    public boolean selectOnClick(int position) {
+        return mSelectOnClick[position];
+    }
+
+    public boolean launchDelayed(int position) {
+        return mLaunchDelayed[position];
+    }
+
+    public boolean fadeOutContent(int position) {
+        return mFadeOutContent[position];
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer;
+
+/**
+ * Data provider that supplies a precompiled navigation drawer model.
+ * If the data provider of a {@link com.oprisnik.navdrawer.widget.NavDrawerLayout} implements
+ * this interface, the model is used instead of compiling {@link #getNavDrawerItems()} on every update.
+ */
+public interface NavDrawerModelProvider extends NavDrawerDataProvider {
+
+    public NavDrawerModel getNavDrawerModel();
+}
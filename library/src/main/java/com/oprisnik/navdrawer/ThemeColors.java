@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.support.annotation.AttrRes;
+import android.util.SparseIntArray;
+import android.util.TypedValue;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Cache for the theme colors used by the navigation drawer.
+ * The colors are resolved once per theme and shared by all entries.
+ * Can be used from any thread, e.g. while rows are inflated in the background.
+ * <p/>
+ * Changes of a theme object through {@link Resources.Theme#applyStyle(int, boolean)} or
+ * {@link android.view.ContextThemeWrapper#setTheme(int)} are not detected, call {@link #invalidate()} afterwards.
+ * {@link NavDrawerActivity} does this for {@link NavDrawerActivity#setTheme(int)}.
+ */
+public class ThemeColors {
+
+    private static final Map<Resources.Theme, ThemeColors> sCache = new WeakHashMap<Resources.Theme, ThemeColors>();
+
+    private final int mColorPrimary;
+    private final int mColorPrimaryDark;
+    private final int mColorControlNormal;
+    private final int mTextColor;
+    private final int mIconTint;
+
+    // other attribute colors, resolved on demand
+    private final SparseIntArray mAttrColors = new SparseIntArray();
+
+    private ThemeColors(Context context) {
+        mColorPrimary = resolveAttrColor(R.attr.colorPrimary, context);
+        mColorPrimaryDark = resolveAttrColor(R.attr.colorPrimaryDark, context);
+        mColorControlNormal = resolveAttrColor(R.attr.colorControlNormal, context);
+        mTextColor = context.getResources().getColor(R.color.navdrawer_text_color);
+        mIconTint = context.getResources().getColor(R.color.navdrawer_icon_tint);
+    }
+
+    /**
+     * Get the colors of the theme of the given context.
+     *
+     * @param context the context
+     * @return the cached theme colors
+     */
+    public static synchronized ThemeColors get(Context context) {
+        Resources.Theme theme = context.getTheme();
+        ThemeColors colors = sCache.get(theme);
+        if (colors == null) {
+            colors = new ThemeColors(context);
+            sCache.put(theme, colors);
+        }
+        return colors;
+    }
+
+    /**
+     * Clear all cached colors. Has to be called if a theme or the configuration changes.
+     */
+    public static synchronized void invalidate() {
+        sCache.clear();
+    }
+
+    public int getColorPrimary() {
+        return mColorPrimary;
+    }
+
+    public int getColorPrimaryDark() {
+        return mColorPrimaryDark;
+    }
+
+    public int getColorControlNormal() {
+        return mColorControlNormal;
+    }
+
+    public int getTextColor() {
+        return mTextColor;
+    }
+
+    public int getIconTint() {
+        return mIconTint;
+    }
+
+    /**
+     * Get the color of the given theme attribute.
+     *
+     * @param attr    the color attribute
+     * @param context a context with the theme of this cache
+     * @return the color
+     */
+    public int getAttrColor(@AttrRes int attr, Context context) {
+        synchronized (mAttrColors) {
+            int index = mAttrColors.indexOfKey(attr);
+            if (index >= 0) {
+                return mAttrColors.valueAt(index);
+            }
+            int color = resolveAttrColor(attr, context);
+            mAttrColors.put(attr, color);
+            return color;
+        }
+    }
+
+    private static int resolveAttrColor(@AttrRes int attr, Context context) {
+        // only called once per theme and attribute
+        TypedValue typedValue = new TypedValue();
+        if (context.getTheme().resolveAttribute(attr, typedValue, true)) {
+            if (typedValue.type >= TypedValue.TYPE_FIRST_INT
+                    && typedValue.type <= TypedValue.TYPE_LAST_INT) {
+                return typedValue.data;
+            } else if (typedValue.type == TypedValue.TYPE_STRING) {
+                return context.getResources().getColor(typedValue.resourceId);
+            }
+        }
+        return 0;
+    }
+}
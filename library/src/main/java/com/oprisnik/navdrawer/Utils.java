@@ -21,21 +21,11 @@ import android.content.Context;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.support.annotation.AttrRes;
-import android.util.TypedValue;
 import android.view.View;
 
 public class Utils {
     public static int getAttrColor(@AttrRes int attr, Context context) {
-        TypedValue typedValue = new TypedValue();
-        if (context.getTheme().resolveAttribute(attr, typedValue, true)) {
-            if (typedValue.type >= TypedValue.TYPE_FIRST_INT
-                    && typedValue.type <= TypedValue.TYPE_LAST_INT) {
-                return typedValue.data;
-            } else if (typedValue.type == TypedValue.TYPE_STRING) {
-                return context.getResources().getColor(typedValue.resourceId);
-            }
-        }
-        return 0;
+        return ThemeColors.get(context).getAttrColor(attr, context);
     }
 
     @SuppressWarnings("deprecation")
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer.entry;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import com.oprisnik.navdrawer.NavDrawerAccount;
+import com.oprisnik.navdrawer.R;
+import com.oprisnik.navdrawer.widget.NavDrawerAvatarLoader;
+import com.oprisnik.navdrawer.widget.NavDrawerLayout;
+
+/**
+ * Entry of the account list, displays the avatar, name and email of an account.
+ * Avatars are decoded once and shared through the {@link NavDrawerAvatarLoader} cache.
+ */
+public class NavDrawerAccountEntry extends NavDrawerEntry {
+
+    private final NavDrawerAccount mAccount;
+
+    public NavDrawerAccountEntry(NavDrawerAccount account) {
+        super(0, 0, R.layout.navdrawer_account_item);
+        mAccount = account;
+        setLaunchDelayed(false);
+    }
+
+    public NavDrawerAccount getAccount() {
+        return mAccount;
+    }
+
+    @Override
+    protected ViewHolder createViewHolder(View view) {
+        return new AccountViewHolder(view);
+    }
+
+    @Override
+    public void bindView(Context context, View view, boolean selected, NavDrawerLayout.NavigationListener listener) {
+        super.bindView(context, view, selected, listener);
+        final AccountViewHolder holder = (AccountViewHolder) getViewHolder(view);
+        if (holder.titleView != null) {
+            holder.titleView.setText(mAccount.getName());
+        }
+        if (holder.subtitleView != null) {
+            holder.subtitleView.setText(mAccount.getEmail());
+        }
+        if (holder.avatarView == null) {
+            return;
+        }
+        NavDrawerAvatarLoader.Source avatar = mAccount.getAvatar();
+        holder.mAvatar = avatar;
+        if (avatar == null) {
+            holder.avatarView.setImageResource(R.drawable.person_image_empty);
+            return;
+        }
+        int size = context.getResources().getDimensionPixelSize(R.dimen.navdrawer_account_avatar_size);
+        NavDrawerAvatarLoader loader = NavDrawerAvatarLoader.getInstance(context);
+        Bitmap cached = loader.getCached(avatar, size, size);
+        if (cached != null) {
+            holder.avatarView.setImageBitmap(cached);
+            return;
+        }
+        holder.avatarView.setImageResource(R.drawable.person_image_empty);
+        loader.load(avatar, size, size, new NavDrawerAvatarLoader.Callback() {
+            @Override
+            public void onAvatarLoaded(NavDrawerAvatarLoader.Source source, Bitmap bitmap) {
+                // the view might have been re-bound to another account in the meantime
+                if (bitmap != null && source.equals(holder.mAvatar)) {
+                    holder.avatarView.setImageBitmap(bitmap);
+                }
+            }
+        });
+    }
+
+    public static class AccountViewHolder extends ViewHolder {
+
+        public final TextView subtitleView;
+        public final ImageView avatarView;
+
+        private NavDrawerAvatarLoader.Source mAvatar;
+
+        public AccountViewHolder(View itemView) {
+            super(itemView);
+            View subtitle = itemView.findViewById(android.R.id.summary);
+            subtitleView = subtitle instanceof TextView ? (TextView) subtitle : null;
+            View avatar = itemView.findViewById(R.id.navdrawer_account_avatar);
+            avatarView = avatar instanceof ImageView ? (ImageView) avatar : null;
+        }
+    }
+}
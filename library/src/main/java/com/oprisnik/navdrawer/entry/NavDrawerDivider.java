@@ -17,23 +17,30 @@
 package com.oprisnik.navdrawer.entry;
 
 import android.content.Context;
-import android.view.LayoutInflater;
+import android.support.annotation.LayoutRes;
 import android.view.View;
-import android.view.ViewGroup;
 
 import com.oprisnik.navdrawer.R;
 import com.oprisnik.navdrawer.widget.NavDrawerLayout;
 
 public class NavDrawerDivider extends NavDrawerEntry {
 
+    public NavDrawerDivider() {
+        this(R.layout.navdrawer_divider);
+    }
+
+    protected NavDrawerDivider(@LayoutRes int layoutResId) {
+        super(0, 0, layoutResId);
+    }
+
     @Override
     public boolean isClickable() {
         return false;
     }
 
     @Override
-    public View createView(Context context, ViewGroup container, boolean selected,
-                           final NavDrawerLayout.NavigationListener listener) {
-        return LayoutInflater.from(context).inflate(R.layout.navdrawer_divider, container, false);
+    public void bindView(Context context, View view, boolean selected,
+                         final NavDrawerLayout.NavigationListener listener) {
+        // nothing to bind
     }
 }
@@ -16,20 +16,11 @@
 
 package com.oprisnik.navdrawer.entry;
 
-import android.content.Context;
-import android.view.LayoutInflater;
-import android.view.View;
-import android.view.ViewGroup;
-
 import com.oprisnik.navdrawer.R;
-import com.oprisnik.navdrawer.entry.NavDrawerDivider;
-import com.oprisnik.navdrawer.widget.NavDrawerLayout;
 
 public class NavDrawerDividerBeforeSubheader extends NavDrawerDivider {
 
-    @Override
-    public View createView(Context context, ViewGroup container, boolean selected,
-                           final NavDrawerLayout.NavigationListener listener) {
-        return LayoutInflater.from(context).inflate(R.layout.navdrawer_divider_before_subheader, container, false);
+    public NavDrawerDividerBeforeSubheader() {
+        super(R.layout.navdrawer_divider_before_subheader);
     }
 }
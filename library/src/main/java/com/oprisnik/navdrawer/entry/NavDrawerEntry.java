@@ -17,13 +17,11 @@
 package com.oprisnik.navdrawer.entry;
 
 import android.content.Context;
-import android.content.res.Resources;
 import android.graphics.PorterDuff;
 import android.support.annotation.ColorRes;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.LayoutRes;
 import android.support.annotation.StringRes;
-import android.util.TypedValue;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -31,8 +29,11 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.oprisnik.navdrawer.R;
+import com.oprisnik.navdrawer.ThemeColors;
 import com.oprisnik.navdrawer.widget.NavDrawerLayout;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Navigation drawer entry.
  */
@@ -40,11 +41,21 @@ public class NavDrawerEntry {
 
     public static final int DEFAULT_LAYOUT_RES_ID = R.layout.navdrawer_item;
 
+    /**
+     * IDs of entries without an explicit ID are assigned starting with this value.
+     * Custom IDs must be smaller.
+     */
+    public static final int FIRST_GENERATED_ID = 0x40000000;
+
+    private static final AtomicInteger sNextGeneratedId = new AtomicInteger(FIRST_GENERATED_ID);
+
     protected static final boolean DEFAULT_CLICKABLE = true;
     protected static final boolean DEFAULT_LAUNCH_DELAYED = true;
     protected static final boolean DEFAULT_FADE_OUT_CONTENT = false;
     protected static final boolean DEFAULT_SELECT_ON_CLICK = true;
 
+    private int mId;
+
     @StringRes
     private int mTitleResId;
 
@@ -67,6 +78,10 @@ public class NavDrawerEntry {
     
     private boolean mSelectOnClick = DEFAULT_SELECT_ON_CLICK;
 
+    // type of the holders created by createViewHolder(View), known after the first holder has been created.
+    // Volatile because rows can be inflated on a background thread.
+    private volatile Class<? extends ViewHolder> mViewHolderClass;
+
 
     public NavDrawerEntry(@StringRes int titleResId, @DrawableRes int iconResId) {
         this(titleResId, iconResId, DEFAULT_LAYOUT_RES_ID);
@@ -87,53 +102,154 @@ public class NavDrawerEntry {
     }
 
     public NavDrawerEntry() {
+        mId = sNextGeneratedId.getAndIncrement();
     }
 
+    /**
+     * Inflate and bind the view for this entry.
+     *
+     * @deprecated not called by {@link NavDrawerLayout} anymore, rows are inflated with
+     * {@link #inflateView(Context, ViewGroup)} and re-bound to other entries with
+     * {@link #bindView(Context, View, boolean, NavDrawerLayout.NavigationListener)}.
+     * Override these methods to customize the row instead.
+     */
+    @Deprecated
     public View createView(Context context, ViewGroup container, boolean selected, final NavDrawerLayout.NavigationListener listener) {
-        final View view = LayoutInflater.from(context).inflate(mLayoutResId, container, false);
+        final View view = inflateView(context, container);
+        bindView(context, view, selected, listener);
+        return view;
+    }
+
+    /**
+     * Inflate the view for this entry without binding any data to it.
+     * Views returned by this method can be shared between entries with the same layout
+     * resource ID, see {@link #bindView(Context, View, boolean, NavDrawerLayout.NavigationListener)}.
+     *
+     * @param context   the context to use
+     * @param container the parent of the view
+     * @return the inflated view
+     */
+    public View inflateView(Context context, ViewGroup container) {
+        View view = LayoutInflater.from(context).inflate(getLayoutResId(), container, false);
+        ViewHolder holder = createViewHolder(view);
+        mViewHolderClass = holder.getClass();
+        view.setTag(R.id.navdrawer_view_holder, holder);
+        return view;
+    }
+
+    /**
+     * Create the view holder for a view inflated by {@link #inflateView(Context, ViewGroup)}.
+     * Override this method if your entry has additional views that should be looked up only once.
+     *
+     * @param view the inflated view
+     * @return the view holder
+     */
+    protected ViewHolder createViewHolder(View view) {
+        return new ViewHolder(view);
+    }
 
-        ImageView iconView = (ImageView) view.findViewById(android.R.id.icon);
-        TextView titleView = (TextView) view.findViewById(android.R.id.title);
-        if (iconView != null) {
+    /**
+     * Get the view holder of the given view. The holder is created if the view
+     * has not been inflated by {@link #inflateView(Context, ViewGroup)} or if its holder has been
+     * created by another entry type with the same layout, so it is always of the type returned by
+     * {@link #createViewHolder(View)}.
+     *
+     * @param view the view
+     * @return the view holder
+     */
+    protected ViewHolder getViewHolder(View view) {
+        Object tag = view.getTag(R.id.navdrawer_view_holder);
+        if (isViewHolder(tag)) {
+            return (ViewHolder) tag;
+        }
+        ViewHolder holder = createViewHolder(view);
+        mViewHolderClass = holder.getClass();
+        view.setTag(R.id.navdrawer_view_holder, holder);
+        return holder;
+    }
+
+    /**
+     * Check whether the given view tag is a holder of the type returned by {@link #createViewHolder(View)}.
+     * Until this entry has created a holder, only the default {@link ViewHolder} is accepted, so a row inflated
+     * by another entry gets a new holder at most once.
+     *
+     * @param tag the view holder tag of a row or null
+     * @return true if the tag can be used as view holder of this entry
+     */
+    protected boolean isViewHolder(Object tag) {
+        if (tag == null) {
+            return false;
+        }
+        Class<? extends ViewHolder> holderClass = mViewHolderClass;
+        return tag.getClass() == (holderClass != null ? holderClass : ViewHolder.class);
+    }
+
+    /**
+     * Bind this entry to the given view. The view has been created by {@link #inflateView(Context, ViewGroup)}
+     * of this entry or of another entry with the same layout resource ID.
+     *
+     * @param context  the context to use
+     * @param view     the view to bind
+     * @param selected true if the entry is selected
+     * @param listener the listener to notify on click
+     */
+    public void bindView(Context context, View view, boolean selected, final NavDrawerLayout.NavigationListener listener) {
+        ViewHolder holder = getViewHolder(view);
+        if (holder.iconView != null) {
             // set icon and text
-            iconView.setVisibility(mIconResId > 0 ? View.VISIBLE : View.GONE);
+            holder.iconView.setVisibility(mIconResId > 0 ? View.VISIBLE : View.GONE);
             if (mIconResId > 0) {
-                iconView.setImageResource(mIconResId);
+                holder.iconView.setImageResource(mIconResId);
             }
         }
-        if (titleView != null) {
-            titleView.setText(mTitleResId);
+        if (holder.titleView != null) {
+            if (mTitleResId != 0) {
+                holder.titleView.setText(mTitleResId);
+            } else {
+                holder.titleView.setText(null);
+            }
         }
         formatView(context, view, selected);
 
+        holder.mEntry = this;
+        holder.mListener = listener;
         if (isClickable()) {
-            view.setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View v) {
-                    listener.onEntrySelected(NavDrawerEntry.this);
-                }
-            });
+            view.setOnClickListener(holder);
+        } else {
+            // the view might have been bound to a clickable entry before
+            view.setOnClickListener(null);
+            view.setClickable(false);
         }
+    }
 
-        return view;
+    /**
+     * Release all references of the given view to this entry and the click listener,
+     * e.g. before the view is moved to another activity.
+     *
+     * @param view the view to unbind
+     */
+    public void unbindView(View view) {
+        ViewHolder holder = getViewHolder(view);
+        holder.mEntry = null;
+        holder.mListener = null;
+        view.setOnClickListener(null);
     }
 
     public void formatView(Context context, View view, boolean selected) {
         if (!isClickable() || view == null) {
             return;
         }
-        ImageView iconView = (ImageView) view.findViewById(android.R.id.icon);
-        TextView titleView = (TextView) view.findViewById(android.R.id.title);
+        ViewHolder holder = getViewHolder(view);
+        ImageView iconView = holder.iconView;
+        TextView titleView = holder.titleView;
 
+        ThemeColors colors = ThemeColors.get(context);
         if (selected) {
             int color;
             if (mHasCustomColor) {
                 color = context.getResources().getColor(mSelectedColorRes);
             } else {
-                TypedValue typedValue = new TypedValue();
-                Resources.Theme theme = context.getTheme();
-                theme.resolveAttribute(R.attr.colorPrimary, typedValue, true);
-                color = typedValue.data;
+                color = colors.getColorPrimary();
             }
             if (titleView != null) {
                 titleView.setTextColor(color);
@@ -144,10 +260,10 @@ public class NavDrawerEntry {
             view.setActivated(true);
         } else {
             if (titleView != null) {
-                titleView.setTextColor(context.getResources().getColor(R.color.navdrawer_text_color));
+                titleView.setTextColor(colors.getTextColor());
             }
             if (iconView != null) {
-                iconView.setColorFilter(context.getResources().getColor(R.color.navdrawer_icon_tint), PorterDuff.Mode.SRC_IN);
+                iconView.setColorFilter(colors.getIconTint(), PorterDuff.Mode.SRC_IN);
             }
             view.setActivated(false);
         }
@@ -173,6 +289,34 @@ public class NavDrawerEntry {
         return mIsClickable;
     }
 
+    /**
+     * Get the stable ID of this entry. Unless an ID has been set explicitly, a unique ID is generated.
+     *
+     * @return the ID
+     */
+    public int getId() {
+        return mId;
+    }
+
+    /**
+     * Set the ID of this entry. IDs have to be unique within a navigation drawer and
+     * smaller than {@link #FIRST_GENERATED_ID}. Must not be changed once the entry is displayed.
+     *
+     * @param id the ID
+     * @throws IllegalArgumentException if the ID is not smaller than {@link #FIRST_GENERATED_ID}
+     */
+    public void setId(int id) {
+        checkId(id);
+        mId = id;
+    }
+
+    private static void checkId(int id) {
+        if (id >= FIRST_GENERATED_ID) {
+            // could collide with a generated ID
+            throw new IllegalArgumentException("Entry IDs must be smaller than FIRST_GENERATED_ID: " + id);
+        }
+    }
+
     public int getTitleResId() {
         return mTitleResId;
     }
@@ -201,8 +345,45 @@ public class NavDrawerEntry {
         mSelectOnClick = isExternal;
     }
 
+    /**
+     * Holds the views of a navigation drawer entry so that they are only looked up once.
+     * Subclasses can extend the holder with their own views, see {@link #createViewHolder(View)}.
+     */
+    public static class ViewHolder implements View.OnClickListener {
+
+        public final View itemView;
+        public final ImageView iconView;
+        public final TextView titleView;
+
+        // the entry this holder is currently bound to
+        private NavDrawerEntry mEntry;
+        private NavDrawerLayout.NavigationListener mListener;
+
+        public ViewHolder(View itemView) {
+            this.itemView = itemView;
+            View icon = itemView.findViewById(android.R.id.icon);
+            View title = itemView.findViewById(android.R.id.title);
+            iconView = icon instanceof ImageView ? (ImageView) icon : null;
+            titleView = title instanceof TextView ? (TextView) title : null;
+        }
+
+        public NavDrawerEntry getEntry() {
+            return mEntry;
+        }
+
+        @Override
+        public void onClick(View v) {
+            if (mEntry != null && mListener != null) {
+                mListener.onEntrySelected(mEntry);
+            }
+        }
+    }
+
     public static class Builder {
 
+        private int mId;
+        private boolean mHasId = false;
+
         @StringRes
         private int mTitleResId;
 
@@ -228,6 +409,21 @@ public class NavDrawerEntry {
         public Builder() {
         }
 
+        /**
+         * Set a stable ID for the navigation drawer entry, e.g. to look up its view with
+         * {@link NavDrawerLayout#getEntryView(int)}. If no ID is set, a unique ID is generated.
+         *
+         * @param id the ID, must be smaller than {@link #FIRST_GENERATED_ID}
+         * @return the builder
+         * @throws IllegalArgumentException if the ID is not smaller than {@link #FIRST_GENERATED_ID}
+         */
+        public Builder setId(int id) {
+            checkId(id);
+            mId = id;
+            mHasId = true;
+            return this;
+        }
+
         /**
          * Set a custom layout resource ID for the navigation drawer entry.
          *  
@@ -332,6 +528,9 @@ public class NavDrawerEntry {
          */
         public NavDrawerEntry build() {
             NavDrawerEntry entry = new NavDrawerEntry();
+            if (mHasId) {
+                entry.mId = mId;
+            }
             entry.mLayoutResId = mLayoutResId;
             entry.mIconResId = mIconResId;
             entry.mTitleResId = mTitleResId;
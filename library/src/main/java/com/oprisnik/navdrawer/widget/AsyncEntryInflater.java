@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer.widget;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.Handler;
+import android.os.Process;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.oprisnik.navdrawer.entry.NavDrawerEntry;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Inflates the rows of navigation drawer entries on a background thread.
+ * The inflated views are handed back to the main thread unbound, binding has to happen there.
+ */
+class AsyncEntryInflater {
+
+    private static final String TAG = "AsyncEntryInflater";
+
+    public interface Callback {
+        /**
+         * Called on the main thread once all views have been inflated.
+         *
+         * @param views        the inflated views, in the same order as the entries
+         * @param inflateNanos the inflation time of each view in nanoseconds
+         */
+        public void onInflated(View[] views, long[] inflateNanos);
+    }
+
+    private static final Executor sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "NavDrawerInflater");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final Handler mHandler;
+
+    AsyncEntryInflater(Handler handler) {
+        mHandler = handler;
+    }
+
+    /**
+     * Start inflating the views for the given entries.
+     *
+     * @param context   the context to inflate with
+     * @param entries   the entries, must not be modified until the task is done
+     * @param container the future parent of the views
+     * @param callback  the callback to notify on the main thread
+     * @return the task that can be used to cancel the inflation
+     */
+    Task inflate(Context context, List<NavDrawerEntry> entries, ViewGroup container, Callback callback) {
+        Task task = new Task(createInflaterContext(context), entries, container, callback);
+        sExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * Wrap the given context so that it returns its own layout inflater. The inflater of the activity
+     * is locked while it inflates, so sharing it would block the inflation on the main thread.
+     */
+    private static Context createInflaterContext(Context context) {
+        final LayoutInflater inflater = LayoutInflater.from(context).cloneInContext(context);
+        return new ContextWrapper(context) {
+            @Override
+            public Object getSystemService(String name) {
+                if (LAYOUT_INFLATER_SERVICE.equals(name)) {
+                    return inflater;
+                }
+                return super.getSystemService(name);
+            }
+        };
+    }
+
+    class Task implements Runnable {
+
+        private final Context mContext;
+        private final List<NavDrawerEntry> mEntries;
+        private final ViewGroup mContainer;
+        private final Callback mCallback;
+
+        private final View[] mViews;
+        private final long[] mInflateNanos;
+        private boolean mCancelled;
+
+        private Task(Context context, List<NavDrawerEntry> entries, ViewGroup container, Callback callback) {
+            mContext = context;
+            mEntries = entries;
+            mContainer = container;
+            mCallback = callback;
+            mViews = new View[entries.size()];
+            mInflateNanos = new long[mViews.length];
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            for (int i = 0; i < mViews.length; i++) {
+                if (isCancelled()) {
+                    return;
+                }
+                View view;
+                long start = System.nanoTime();
+                try {
+                    view = mEntries.get(i).inflateView(mContext, mContainer);
+                } catch (RuntimeException e) {
+                    // the layout cannot be inflated off the main thread -> will be inflated on bind,
+                    // where a broken layout throws again
+                    Log.w(TAG, "Could not inflate the row of entry " + mEntries.get(i).getId()
+                            + " in the background", e);
+                    view = null;
+                }
+                long duration = System.nanoTime() - start;
+                synchronized (this) {
+                    mViews[i] = view;
+                    mInflateNanos[i] = duration;
+                }
+            }
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!isCancelled()) {
+                        View[] views = cancel();
+                        mCallback.onInflated(views, getInflateNanos());
+                    }
+                }
+            });
+        }
+
+        synchronized boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * Cancel the task.
+         *
+         * @return the views that have been inflated so far; missing views are null
+         */
+        synchronized View[] cancel() {
+            mCancelled = true;
+            return mViews.clone();
+        }
+
+        /**
+         * @return the inflation time of each view inflated so far in nanoseconds
+         */
+        synchronized long[] getInflateNanos() {
+            return mInflateNanos.clone();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer.widget;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+
+import com.oprisnik.navdrawer.NavDrawerModel;
+import com.oprisnik.navdrawer.entry.NavDrawerEntry;
+
+/**
+ * Adapter used by {@link NavDrawerLayout} in virtualized mode.
+ * Only the visible rows are inflated, rows are recycled per entry layout resource ID.
+ */
+class NavDrawerAdapter extends BaseAdapter {
+
+    private final Context mContext;
+    private final NavDrawerLayout.NavigationListener mListener;
+
+    private NavDrawerModel mModel = NavDrawerModel.EMPTY;
+
+    private NavDrawerEntry mSelectedEntry;
+
+    private NavDrawerMetrics mMetrics;
+
+    NavDrawerAdapter(Context context, NavDrawerLayout.NavigationListener listener) {
+        mContext = context;
+        mListener = listener;
+    }
+
+    /**
+     * Set the model to display. The view types are the view types of the model.
+     *
+     * @param model the new model
+     * @return true if the view types changed and the adapter has to be set again,
+     * so that the list view drops the views it recycled for the old view types
+     */
+    boolean setModel(NavDrawerModel model) {
+        boolean viewTypesChanged = !mModel.hasSameViewTypes(model);
+        mModel = model;
+        return viewTypesChanged;
+    }
+
+    void setMetrics(NavDrawerMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    NavDrawerEntry getSelectedEntry() {
+        return mSelectedEntry;
+    }
+
+    void setSelectedEntry(NavDrawerEntry selectedEntry) {
+        mSelectedEntry = selectedEntry;
+    }
+
+    @Override
+    public int getCount() {
+        return mModel.size();
+    }
+
+    @Override
+    public NavDrawerEntry getItem(int position) {
+        return mModel.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mModel.get(position).getId();
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return Math.max(1, mModel.getViewTypeCount());
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return mModel.getViewType(position);
+    }
+
+    @Override
+    public boolean areAllItemsEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean isEnabled(int position) {
+        return mModel.isClickable(position);
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        NavDrawerEntry entry = getItem(position);
+        View view = convertView;
+        if (view == null) {
+            long start = mMetrics != null ? System.nanoTime() : 0;
+            view = entry.inflateView(mContext, parent);
+            if (mMetrics != null && start != 0) {
+                mMetrics.onEntryInflated(entry.getLayoutResId(), System.nanoTime() - start);
+            }
+        }
+        entry.bindView(mContext, view, entry == mSelectedEntry, mListener);
+        if (mMetrics != null) {
+            mMetrics.onEntryFormatted(entry);
+        }
+        return view;
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer.widget;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.DrawableRes;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Process-wide loader for header avatars. Images are decoded on a background thread,
+ * downsampled to the size they are displayed at and kept in a size-bounded memory cache
+ * that is shared by all activities.
+ */
+public class NavDrawerAvatarLoader implements ComponentCallbacks2 {
+
+    private static final String TAG = "NavDrawerAvatarLoader";
+
+    // upper bound of the memory cache in bytes, the cache uses at most 1/32 of the heap
+    public static final int DEFAULT_MAX_CACHE_SIZE = 4 * 1024 * 1024;
+
+    public interface Callback {
+        /**
+         * Called on the main thread once the avatar is available.
+         *
+         * @param source the source that has been loaded
+         * @param bitmap the decoded bitmap or null if the source could not be decoded
+         */
+        public void onAvatarLoaded(Source source, Bitmap bitmap);
+    }
+
+    /**
+     * Opens the stream of a {@link Source#fromStream(String, StreamOpener)} source.
+     */
+    public interface StreamOpener {
+        /**
+         * Open the image stream. Called on a background thread, possibly more than once.
+         *
+         * @return the stream, closed by the caller
+         * @throws IOException if the stream cannot be opened
+         */
+        public InputStream open() throws IOException;
+    }
+
+    /**
+     * Image source of an avatar.
+     */
+    public static abstract class Source {
+
+        private final String mKey;
+
+        protected Source(String key) {
+            mKey = key;
+        }
+
+        /**
+         * @return the key of this source, sources with the same key are the same image
+         */
+        public String getKey() {
+            return mKey;
+        }
+
+        /**
+         * Decode the image. Called on a background thread, first with
+         * {@link BitmapFactory.Options#inJustDecodeBounds} set and then to decode the bitmap.
+         *
+         * @param context the application context
+         * @param options the decoding options
+         * @return the bitmap or null
+         * @throws IOException if the image cannot be read
+         */
+        protected abstract Bitmap decode(Context context, BitmapFactory.Options options) throws IOException;
+
+        /**
+         * Check whether the image can change without changing the key, see {@link #getVersion()}.
+         *
+         * @return true if the version has to be checked whenever the avatar is loaded
+         */
+        protected boolean isVersioned() {
+            return false;
+        }
+
+        /**
+         * Get the version of the image, e.g. the modification time of a file, so that a changed image
+         * is decoded again. Called on a background thread.
+         *
+         * @return the version
+         */
+        protected String getVersion() {
+            return "";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Source && mKey.equals(((Source) o).mKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return mKey.hashCode();
+        }
+
+        public static Source fromResource(@DrawableRes final int resId) {
+            return new Source("res:" + resId) {
+                @Override
+                protected Bitmap decode(Context context, BitmapFactory.Options options) {
+                    return BitmapFactory.decodeResource(context.getResources(), resId, options);
+                }
+            };
+        }
+
+        public static Source fromFile(final File file) {
+            return new Source("file:" + file.getAbsolutePath()) {
+                @Override
+                protected Bitmap decode(Context context, BitmapFactory.Options options) {
+                    return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+                }
+
+                @Override
+                protected boolean isVersioned() {
+                    return true;
+                }
+
+                @Override
+                protected String getVersion() {
+                    // the file is checked on the loader thread, a changed file is decoded again
+                    return String.valueOf(file.lastModified());
+                }
+            };
+        }
+
+        /**
+         * Create a source for images that are read from a stream, e.g. a content URI.
+         *
+         * @param key    the unique key of the image
+         * @param opener opens the stream of the image
+         * @return the source
+         */
+        public static Source fromStream(String key, final StreamOpener opener) {
+            return new Source("stream:" + key) {
+                @Override
+                protected Bitmap decode(Context context, BitmapFactory.Options options) throws IOException {
+                    InputStream in = opener.open();
+                    try {
+                        return BitmapFactory.decodeStream(in, null, options);
+                    } finally {
+                        in.close();
+                    }
+                }
+            };
+        }
+    }
+
+    private static final Executor sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "NavDrawerAvatarLoader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static NavDrawerAvatarLoader sInstance;
+
+    private final Context mApplicationContext;
+    private final Handler mHandler;
+    private final LruCache<String, Bitmap> mCache;
+    // source key -> last known version, written on the loader thread
+    private final Map<String, String> mVersions = new ConcurrentHashMap<String, String>();
+
+    private NavDrawerAvatarLoader(Context context) {
+        mApplicationContext = context.getApplicationContext();
+        mApplicationContext.registerComponentCallbacks(this);
+        mHandler = new Handler(Looper.getMainLooper());
+        int maxSize = (int) Math.min(DEFAULT_MAX_CACHE_SIZE, Runtime.getRuntime().maxMemory() / 32);
+        mCache = new LruCache<String, Bitmap>(maxSize) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    public static NavDrawerAvatarLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NavDrawerAvatarLoader(context);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Get a cached avatar.
+     *
+     * @param source    the source
+     * @param reqWidth  the width the avatar is displayed at
+     * @param reqHeight the height the avatar is displayed at
+     * @return the bitmap or null if it is not cached
+     */
+    public Bitmap getCached(Source source, int reqWidth, int reqHeight) {
+        String version = mVersions.get(source.getKey());
+        if (version == null) {
+            return null; // not loaded yet
+        }
+        return mCache.get(getCacheKey(source, version, reqWidth, reqHeight));
+    }
+
+    /**
+     * Load an avatar. If it is cached, the callback is called immediately, otherwise the avatar is
+     * decoded on a background thread and the callback is called on the main thread.
+     * The version of cached versioned sources (e.g. files) is checked in the background, and the callback
+     * is called again if the image has changed.
+     *
+     * @param source    the source
+     * @param reqWidth  the width the avatar is displayed at
+     * @param reqHeight the height the avatar is displayed at
+     * @param callback  the callback
+     */
+    public void load(final Source source, final int reqWidth, final int reqHeight, final Callback callback) {
+        final Bitmap cached = getCached(source, reqWidth, reqHeight);
+        if (cached != null) {
+            callback.onAvatarLoaded(source, cached);
+            if (!source.isVersioned()) {
+                return;
+            }
+        }
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                String version = source.getVersion();
+                mVersions.put(source.getKey(), version);
+                String key = getCacheKey(source, version, reqWidth, reqHeight);
+                Bitmap bitmap = mCache.get(key);
+                if (bitmap != null && bitmap == cached) {
+                    return; // unchanged
+                }
+                if (bitmap == null) {
+                    bitmap = decode(source, reqWidth, reqHeight);
+                    if (bitmap != null) {
+                        mCache.put(key, bitmap);
+                    }
+                }
+                final Bitmap result = bitmap;
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onAvatarLoaded(source, result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Remove all avatars from the memory cache.
+     */
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    private Bitmap decode(Source source, int reqWidth, int reqHeight) {
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            source.decode(mApplicationContext, options);
+            options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, reqWidth, reqHeight);
+            options.inJustDecodeBounds = false;
+            return source.decode(mApplicationContext, options);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not load avatar " + source.getKey(), e);
+        } catch (OutOfMemoryError e) {
+            Log.w(TAG, "Not enough memory to load avatar " + source.getKey(), e);
+        }
+        return null;
+    }
+
+    /**
+     * Get the largest power of 2 sample size that keeps both dimensions at least as large as requested.
+     */
+    static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            return inSampleSize;
+        }
+        while (width / (inSampleSize * 2) >= reqWidth && height / (inSampleSize * 2) >= reqHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    private static String getCacheKey(Source source, String version, int reqWidth, int reqHeight) {
+        return source.getKey() + '#' + version + '@' + reqWidth + 'x' + reqHeight;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE) {
+            clear();
+        } else if (level >= TRIM_MEMORY_BACKGROUND) {
+            mCache.trimToSize(mCache.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        // avatars do not depend on the configuration
+    }
+}
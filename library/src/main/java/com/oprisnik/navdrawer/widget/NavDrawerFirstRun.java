@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer.widget;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Process-wide first-run flag of the navigation drawer, i.e. whether the drawer has to be opened
+ * automatically because the user has never seen it.
+ * <p/>
+ * The flag is read on a background thread as soon as the first activity or drawer is created
+ * and kept in memory for the lifetime of the process. Writes are done on the same background thread,
+ * at most once per process.
+ * <p/>
+ * All methods have to be called on the main thread.
+ */
+public class NavDrawerFirstRun {
+
+    private static final String TAG = "NavDrawerFirstRun";
+
+    /**
+     * Persists the first-run flag, e.g. in the configuration store of the app.
+     */
+    public interface Storage {
+        /**
+         * Read the flag. Called on a background thread.
+         *
+         * @param context the application context
+         * @return true if the drawer has been shown before
+         */
+        public boolean isDrawerShown(Context context);
+
+        /**
+         * Store that the drawer has been shown. Called on a background thread.
+         *
+         * @param context the application context
+         */
+        public void setDrawerShown(Context context);
+    }
+
+    /**
+     * Default storage that uses the shared preferences file "drawer".
+     */
+    public static class SharedPreferencesStorage implements Storage {
+
+        public static final String PREFS_FILE_NAME = "drawer";
+        public static final String PREF_SHOW_DRAWER = "openDrawer";
+
+        @Override
+        public boolean isDrawerShown(Context context) {
+            return !getPrefs(context).getBoolean(PREF_SHOW_DRAWER, true);
+        }
+
+        @Override
+        public void setDrawerShown(Context context) {
+            // already on a background thread
+            getPrefs(context).edit().putBoolean(PREF_SHOW_DRAWER, false).commit();
+        }
+
+        protected SharedPreferences getPrefs(Context context) {
+            return context.getSharedPreferences(PREFS_FILE_NAME, Context.MODE_PRIVATE);
+        }
+    }
+
+    private static final Executor sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "NavDrawerFirstRun");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static Storage sStorage = new SharedPreferencesStorage();
+    private static FutureTask<Boolean> sLoadTask;
+    // set as soon as the drawer is shown, before the flag is written
+    private static boolean sDrawerShown = false;
+    private static boolean sWriteScheduled = false;
+
+    private NavDrawerFirstRun() {
+    }
+
+    /**
+     * Replace the storage of the flag. This has to be called before the first activity is created,
+     * e.g. in {@link android.app.Application#onCreate()}.
+     *
+     * @param storage the storage
+     */
+    public static void setStorage(Storage storage) {
+        sStorage = storage;
+        sLoadTask = null;
+        sDrawerShown = false;
+        sWriteScheduled = false;
+    }
+
+    /**
+     * Start reading the flag in the background. Calling this more than once does not have any effect.
+     *
+     * @param context the context
+     */
+    public static void preload(Context context) {
+        if (sLoadTask != null) {
+            return;
+        }
+        final Context applicationContext = context.getApplicationContext();
+        final Storage storage = sStorage;
+        sLoadTask = new FutureTask<Boolean>(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return storage.isDrawerShown(applicationContext);
+            }
+        });
+        sExecutor.execute(sLoadTask);
+    }
+
+    /**
+     * Check whether the drawer has to be shown because the user has not seen it yet.
+     * Blocks until the flag has been read if it is not preloaded yet.
+     *
+     * @param context the context
+     * @return true if the drawer should be shown
+     */
+    public static boolean shouldShowDrawer(Context context) {
+        if (sDrawerShown) {
+            return false;
+        }
+        preload(context);
+        try {
+            return !sLoadTask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Could not read the first-run flag", e.getCause());
+        }
+        // do not bother the user if the flag is not available
+        return false;
+    }
+
+    /**
+     * Remember that the drawer has been shown. The flag is written in the background and only once,
+     * no matter how often this is called.
+     *
+     * @param context the context
+     */
+    public static void markDrawerShown(Context context) {
+        sDrawerShown = true;
+        if (sWriteScheduled) {
+            return;
+        }
+        sWriteScheduled = true;
+        final Context applicationContext = context.getApplicationContext();
+        final Storage storage = sStorage;
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                storage.setDrawerShown(applicationContext);
+            }
+        });
+    }
+}
@@ -18,25 +18,39 @@ package com.oprisnik.navdrawer.widget;
 
 import android.annotation.TargetApi;
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.view.ViewGroup;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.oprisnik.navdrawer.R;
+import com.oprisnik.navdrawer.Utils;
 
 public class NavDrawerHeader extends FrameLayout {
 
     private String mTitle;
     private String mSubtitle;
     private Drawable mIcon;
+    // the avatar that is being loaded or displayed
+    private NavDrawerAvatarLoader.Source mIconSource;
+    // bitmap of the displayed avatar
+    private Bitmap mAvatarBitmap;
 
     private TextView mTitleText;
     private TextView mSubtitleText;
     private ImageView mIconView;
 
+    // layout requests are collected while updating multiple values
+    private boolean mBatchingUpdates = false;
+    private boolean mLayoutRequestedInBatch = false;
+
     public NavDrawerHeader(Context context) {
         super(context);
     }
@@ -90,6 +104,9 @@ public class NavDrawerHeader extends FrameLayout {
     }
 
     public void setTitle(String title) {
+        if (TextUtils.equals(mTitle, title)) {
+            return;
+        }
         mTitle = title;
         updateText(mTitleText, mTitle);
     }
@@ -99,6 +116,9 @@ public class NavDrawerHeader extends FrameLayout {
     }
 
     public void setSubtitle(String subtitle) {
+        if (TextUtils.equals(mSubtitle, subtitle)) {
+            return;
+        }
         mSubtitle = subtitle;
         updateText(mSubtitleText, mSubtitle);
     }
@@ -108,7 +128,122 @@ public class NavDrawerHeader extends FrameLayout {
     }
 
     public void setIcon(Drawable icon) {
+        if (icon == mIcon && mIconSource == null) {
+            return;
+        }
+        mIconSource = null;
+        mAvatarBitmap = null;
         mIcon = icon;
         updateIcon();
     }
+
+    /**
+     * Set the icon to the given avatar. The avatar is decoded on a background thread at the size
+     * of the icon view and cached, so setting the same avatar again is cheap.
+     * The current icon is kept until the avatar has been loaded.
+     *
+     * @param source the avatar source or null to show the default icon
+     */
+    public void setAvatar(NavDrawerAvatarLoader.Source source) {
+        if (source == null) {
+            setIcon(null);
+            return;
+        }
+        if (source.equals(mIconSource) && !source.isVersioned()) {
+            return;
+        }
+        // versioned sources (e.g. files) are loaded again, the loader checks in the background whether they changed
+        mIconSource = source;
+        NavDrawerAvatarLoader.getInstance(getContext()).load(source, getIconWidth(), getIconHeight(),
+                new NavDrawerAvatarLoader.Callback() {
+                    @Override
+                    public void onAvatarLoaded(NavDrawerAvatarLoader.Source source, Bitmap bitmap) {
+                        if (!source.equals(mIconSource)) {
+                            return;
+                        }
+                        if (bitmap == null) {
+                            // can be retried by setting the source again
+                            mIconSource = null;
+                        } else if (bitmap != mAvatarBitmap) {
+                            mAvatarBitmap = bitmap;
+                            mIcon = new BitmapDrawable(getResources(), bitmap);
+                            updateIcon();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Update title, subtitle, icon and background at once. Unchanged values are skipped and
+     * the header is laid out at most once for all changes.
+     *
+     * @param title      the title
+     * @param subtitle   the subtitle
+     * @param icon       the icon, or null to keep the avatar set with {@link #setAvatar} or to use the default icon
+     * @param background the background
+     */
+    public void setInfo(String title, String subtitle, Drawable icon, Drawable background) {
+        mBatchingUpdates = true;
+        try {
+            setTitle(title);
+            setSubtitle(subtitle);
+            if (icon != null || mIconSource == null) {
+                setIcon(icon);
+            }
+            if (!isSameBackground(getBackground(), background)) {
+                Utils.setBackground(this, background);
+            }
+        } finally {
+            mBatchingUpdates = false;
+        }
+        if (mLayoutRequestedInBatch) {
+            mLayoutRequestedInBatch = false;
+            requestLayout();
+        }
+    }
+
+    private static boolean isSameBackground(Drawable current, Drawable background) {
+        if (current == background) {
+            return true;
+        }
+        // e.g. a new ColorDrawable on every call
+        return current instanceof ColorDrawable && background instanceof ColorDrawable
+                && ((ColorDrawable) current).getColor() == ((ColorDrawable) background).getColor()
+                && current.getAlpha() == background.getAlpha();
+    }
+
+    @Override
+    public void requestLayout() {
+        if (mBatchingUpdates) {
+            mLayoutRequestedInBatch = true;
+            return;
+        }
+        super.requestLayout();
+    }
+
+    private int getIconWidth() {
+        if (mIconView != null) {
+            ViewGroup.LayoutParams lp = mIconView.getLayoutParams();
+            if (lp != null && lp.width > 0) {
+                return lp.width;
+            }
+            if (mIconView.getWidth() > 0) {
+                return mIconView.getWidth();
+            }
+        }
+        return getResources().getDimensionPixelSize(R.dimen.navdrawer_header_icon_size);
+    }
+
+    private int getIconHeight() {
+        if (mIconView != null) {
+            ViewGroup.LayoutParams lp = mIconView.getLayoutParams();
+            if (lp != null && lp.height > 0) {
+                return lp.height;
+            }
+            if (mIconView.getHeight() > 0) {
+                return mIconView.getHeight();
+            }
+        }
+        return getResources().getDimensionPixelSize(R.dimen.navdrawer_header_icon_size);
+    }
 }
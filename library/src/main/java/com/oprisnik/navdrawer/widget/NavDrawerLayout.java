@@ -16,28 +16,47 @@
 
 package com.oprisnik.navdrawer.widget;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.app.Activity;
 import android.content.Context;
+import android.content.ContextWrapper;
 import android.content.SharedPreferences;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.graphics.drawable.Drawable;
 import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.LayoutRes;
 import android.support.v4.widget.DrawerLayout;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.ListView;
 
+import com.oprisnik.navdrawer.NavDrawerAccount;
+import com.oprisnik.navdrawer.NavDrawerAccountProvider;
+import com.oprisnik.navdrawer.NavDrawerActivity;
 import com.oprisnik.navdrawer.NavDrawerDataProvider;
+import com.oprisnik.navdrawer.NavDrawerModel;
+import com.oprisnik.navdrawer.NavDrawerModelProvider;
+import com.oprisnik.navdrawer.entry.NavDrawerAccountEntry;
 import com.oprisnik.navdrawer.entry.NavDrawerEntry;
 import com.oprisnik.navdrawer.R;
+import com.oprisnik.navdrawer.ThemeColors;
 import com.oprisnik.navdrawer.Utils;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class NavDrawerLayout extends DrawerLayout {
 
@@ -47,31 +66,61 @@ public class NavDrawerLayout extends DrawerLayout {
         public void onHeaderClicked();
     }
 
+    /**
+     * Navigation listener that is notified as soon as an entry is clicked, before the launch delay.
+     * Use it to start loading the data or layouts of the next screen while the drawer is closing.
+     */
+    public interface PrefetchListener extends NavigationListener {
+        /**
+         * Called when an entry has been clicked, before {@link #onEntrySelected(NavDrawerEntry)}.
+         * If the user clicks another entry before the launch, onEntrySelected(...) is only called for
+         * the last entry. Keep this short, the drawer starts to close after this returns.
+         *
+         * @param entry the clicked entry
+         */
+        public void onEntryWillLaunch(NavDrawerEntry entry);
+    }
+
 
     // delay to launch nav drawer item, to allow close animation to play
     private static final int NAVDRAWER_LAUNCH_DELAY = 250;
 
+    // upper bound of the launch delay if the launch waits for the drawer to close
+    private static final int NAVDRAWER_LAUNCH_TIMEOUT = 1000;
+
     // fade in and fade out durations for the main content when switching between
     // different Activities of the app through the Nav Drawer
     public static final int MAIN_CONTENT_FADEOUT_DURATION = 150;
     public static final int MAIN_CONTENT_FADEIN_DURATION = 250;
 
-    private static final String PREF_SHOW_DRAWER = "openDrawer";
-    private static final String PREFS_FILE_NAME = "drawer";
-
     @LayoutRes
     private static final int NAVDRAWER_LAYOUT = R.layout.navdrawer;
 
+    @LayoutRes
+    private static final int NAVDRAWER_VIRTUALIZED_LAYOUT = R.layout.navdrawer_list;
+
+    @LayoutRes
+    private static final int NAVDRAWER_VIRTUALIZED_HEADER_HOLDER_LAYOUT = R.layout.navdrawer_list_header;
+
     @LayoutRes
     private static final int NAVDRAWER_DEFAULT_HEADER_LAYOUT = R.layout.navdrawer_header;
 
     private Handler mHandler;
 
-    private List<NavDrawerEntry> mEntryList;
-    private Map<NavDrawerEntry, View> mEntryMap;
+    private NavDrawerModel mModel = NavDrawerModel.EMPTY;
+    // entry ID -> row
+    private SparseArray<View> mEntryViews;
+
+    // the selected entry the current rows have been bound with
+    private NavDrawerEntry mSelectedEntry;
 
     private ViewGroup mNavdrawer;
     private ViewGroup mDrawerItemsListContainer;
+    private ViewGroup mContentHolder;
+
+    // used instead of mDrawerItemsListContainer in virtualized mode
+    private ListView mListView;
+    private NavDrawerAdapter mAdapter;
 
     private View mHeader;
 
@@ -80,37 +129,105 @@ public class NavDrawerLayout extends DrawerLayout {
     private NavigationListener mNavigationListener;
     
     private boolean mHasHeader = true;
+
+    private boolean mVirtualized = false;
+
+    private boolean mAsyncInflation = false;
+    private AsyncEntryInflater mAsyncInflater;
+    private AsyncEntryInflater.Task mPendingInflation;
+
+    private boolean mUseSharedViewPool = false;
+    private boolean mRowsReleased = false;
+    private int mThemeResId = 0;
+
+    private boolean mLazyInit = false;
+    private boolean mContentBuilt = false;
+    private List<Runnable> mPendingHeaderUpdates;
+
+    private DrawerListener mDrawerListener;
+
+    private NavDrawerMetrics mMetrics;
+
+    // true if the account list is displayed instead of the entries
+    private boolean mAccountListExpanded = false;
+    // account ID -> entry, created when the account list is expanded for the first time
+    private SparseArray<NavDrawerAccountEntry> mAccountEntries;
+    // true if the attached rows are the rows of the account list
+    private boolean mRowsShowAccounts = false;
+    // rows of the entries while the account list is shown and vice versa, swapped in when the list is toggled
+    private NavDrawerModel mDetachedModel = NavDrawerModel.EMPTY;
+    private SparseArray<View> mDetachedEntryViews = new SparseArray<View>();
+    private NavDrawerEntry mDetachedSelectedEntry;
+
+    private boolean mStateHandoff = false;
+    // restored scroll position, applied once the rows are laid out
+    private boolean mHasPendingScroll = false;
+    private int mPendingScrollY;
+    private int mPendingListPosition;
+    private int mPendingListTop;
+    // restored explicit ID of the selected entry, applied once the entries are loaded
+    private boolean mHasPendingSelectedId = false;
+    private int mPendingSelectedId;
+
+    // the clicked entry that is launched after the delay, a new click replaces it
+    private NavDrawerEntry mPendingLaunchEntry;
+    private long mPendingLaunchClickTime;
+    private boolean mLaunchOnDrawerClosed = false;
+
+    private final Runnable mLaunchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            launchPendingEntry();
+        }
+    };
+
+    // scroll position of the drawer that has been used last, see setStateHandoff(boolean)
+    private static SavedState sHandoffState;
     
     @LayoutRes
     private int mHeaderLayoutRes = NAVDRAWER_DEFAULT_HEADER_LAYOUT;
 
     private NavigationListener mInternalListener = new NavigationListener() {
         @Override
-        public void onEntrySelected(final NavDrawerEntry entry) {
+        public void onEntrySelected(NavDrawerEntry entry) {
+            if (entry instanceof NavDrawerAccountEntry) {
+                selectAccount(((NavDrawerAccountEntry) entry).getAccount());
+                return;
+            }
             if (entry == mDataProvider.getSelectedNavDrawerItem()) {
+                if (cancelPendingLaunch()) {
+                    // the user went back to the current entry before the launch
+                    setSelectedEntry(entry);
+                    fadeInContent();
+                }
                 closeDrawer();
                 return;
             }
-            if (entry.launchDelayed()) {
-                mHandler.postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        notifyListeners(entry);
-                    }
-                }, NAVDRAWER_LAUNCH_DELAY);
-            } else {
-                notifyListeners(entry);
+            long clickTime = mMetrics != null ? System.nanoTime() : 0;
+            if (mStateHandoff) {
+                // the next activity is created before this one is detached
+                saveHandoffState();
+            }
+            int position = mModel.indexOf(entry);
+            if (mNavigationListener instanceof PrefetchListener) {
+                ((PrefetchListener) mNavigationListener).onEntryWillLaunch(entry);
             }
             // check if we should select the current entry
-            if (entry.selectOnClick()) {
+            if (position >= 0 ? mModel.selectOnClick(position) : entry.selectOnClick()) {
                 // set the selected item correctly
-                for (NavDrawerEntry e : mEntryList) {
-                    e.formatView(getContext(), mEntryMap.get(e), e.equals(entry));
-                }
+                setSelectedEntry(entry);
             }
-            if (entry.fadeOutContent()) {
+            // start the fade before the entry is launched, so that a listener that launches
+            // immediately can wait for the fade instead of being faded out afterwards
+            if (position >= 0 ? mModel.fadeOutContent(position) : entry.fadeOutContent()) {
                 fadeOutContent();
             }
+            if (position >= 0 ? mModel.launchDelayed(position) : entry.launchDelayed()) {
+                scheduleLaunch(entry, clickTime);
+            } else {
+                cancelPendingLaunch();
+                dispatchEntrySelected(entry, clickTime);
+            }
 
             closeDrawer();
         }
@@ -121,10 +238,68 @@ public class NavDrawerLayout extends DrawerLayout {
         }
     };
 
+    private DrawerListener mInternalDrawerListener = new DrawerListener() {
+        @Override
+        public void onDrawerSlide(View drawerView, float slideOffset) {
+            // the drawer becomes visible -> the rows are needed now
+            ensureDrawerContent();
+            finishPendingInflation();
+            if (mDrawerListener != null) {
+                mDrawerListener.onDrawerSlide(drawerView, slideOffset);
+            }
+        }
+
+        @Override
+        public void onDrawerOpened(View drawerView) {
+            if (mDrawerListener != null) {
+                mDrawerListener.onDrawerOpened(drawerView);
+            }
+        }
+
+        @Override
+        public void onDrawerClosed(View drawerView) {
+            setAccountListExpanded(false);
+            if (mLaunchOnDrawerClosed && mPendingLaunchEntry != null) {
+                mHandler.removeCallbacks(mLaunchRunnable);
+                launchPendingEntry();
+            }
+            if (mDrawerListener != null) {
+                mDrawerListener.onDrawerClosed(drawerView);
+            }
+        }
+
+        @Override
+        public void onDrawerStateChanged(int newState) {
+            if (mDrawerListener != null) {
+                mDrawerListener.onDrawerStateChanged(newState);
+            }
+        }
+    };
+
+    private ViewTreeObserver.OnPreDrawListener mFirstFrameListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            getViewTreeObserver().removeOnPreDrawListener(this);
+            // runs once the first frame has been drawn and the main thread is idle
+            Looper.myQueue().addIdleHandler(mIdleHandler);
+            return true;
+        }
+    };
+
+    private MessageQueue.IdleHandler mIdleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            ensureDrawerContent();
+            return false;
+        }
+    };
+
     private OnClickListener mHeaderClickListener = new OnClickListener() {
         @Override
         public void onClick(View v) {
-            if (mNavigationListener != null) {
+            if (hasMultipleAccounts()) {
+                setAccountListExpanded(!mAccountListExpanded);
+            } else if (mNavigationListener != null) {
                 mNavigationListener.onHeaderClicked();
             }
         }
@@ -140,12 +315,14 @@ public class NavDrawerLayout extends DrawerLayout {
 
     public NavDrawerLayout(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
-        mEntryList = new ArrayList<NavDrawerEntry>();
-        mEntryMap = new HashMap<NavDrawerEntry, View>();
+        mEntryViews = new SparseArray<View>();
         mHandler = new Handler();
+        // read the first-run flag in the background while the layout is inflated
+        NavDrawerFirstRun.preload(context);
+        super.setDrawerListener(mInternalDrawerListener);
         setDrawerShadow(R.drawable.drawer_shadow, Gravity.START);
 
-        int color = Utils.getAttrColor(R.attr.colorPrimaryDark, context);
+        int color = ThemeColors.get(context).getColorPrimaryDark();
         setStatusBarBackgroundColor(color);
 
         TypedArray a = context.getTheme().obtainStyledAttributes(
@@ -155,51 +332,348 @@ public class NavDrawerLayout extends DrawerLayout {
         try {
             mHasHeader = a.getBoolean(R.styleable.NavDrawerLayout_hasHeader, mHasHeader);
             mHeaderLayoutRes = a.getResourceId(R.styleable.NavDrawerLayout_headerLayout, mHeaderLayoutRes); 
+            mVirtualized = a.getBoolean(R.styleable.NavDrawerLayout_virtualized, mVirtualized);
+            mAsyncInflation = a.getBoolean(R.styleable.NavDrawerLayout_asyncInflation, mAsyncInflation);
+            mLazyInit = a.getBoolean(R.styleable.NavDrawerLayout_lazyInit, mLazyInit);
+            mUseSharedViewPool = a.getBoolean(R.styleable.NavDrawerLayout_sharedViewPool, mUseSharedViewPool);
+            mStateHandoff = a.getBoolean(R.styleable.NavDrawerLayout_stateHandoff, mStateHandoff);
+            mLaunchOnDrawerClosed = a.getBoolean(R.styleable.NavDrawerLayout_launchOnDrawerClosed,
+                    mLaunchOnDrawerClosed);
         } finally {
             a.recycle();
         }
     }
 
     public void fadeOutContent() {
+        fadeOutContent(null);
+    }
+
+    /**
+     * Fade out the main content. The content views are drawn on a hardware layer during the fade.
+     * A running fade-in is cancelled, a running fade-out is continued.
+     *
+     * @param endAction run once the content is faded out, not run if the fade is cancelled (or null)
+     */
+    public void fadeOutContent(Runnable endAction) {
+        fadeContent(false, endAction);
+    }
+
+    public void fadeInContent() {
+        fadeInContent(null);
+    }
+
+    /**
+     * Fade in the main content. The content views are drawn on a hardware layer during the fade.
+     * A running fade-out is cancelled, a running fade-in is continued.
+     *
+     * @param endAction run once the content is faded in, not run if the fade is cancelled (or null)
+     */
+    public void fadeInContent(Runnable endAction) {
+        fadeContent(true, endAction);
+    }
+
+    /**
+     * Check whether the main content is currently being faded out.
+     *
+     * @return true if a fade-out is running
+     */
+    public boolean isFadingOutContent() {
         for (int i = 0; i < getChildCount(); i++) {
             View v = getChildAt(i);
             if (isContentView(v)) {
-                v.animate().alpha(0).setDuration(MAIN_CONTENT_FADEOUT_DURATION);
+                ContentFade fade = (ContentFade) v.getTag(R.id.navdrawer_content_fade);
+                return fade != null && fade.isRunning(false);
             }
         }
+        return false;
     }
 
-    public void fadeInContent() {
+    /**
+     * Run the given action once the running fade of the main content is over, no matter whether it has ended
+     * or has been cancelled, or right away if no fade is running. The actions of a cancelled fade are posted,
+     * so that they do not interfere with the fade that cancelled it.
+     *
+     * @param action the action
+     */
+    public void runAfterContentFade(Runnable action) {
+        for (int i = 0; i < getChildCount(); i++) {
+            View v = getChildAt(i);
+            if (isContentView(v)) {
+                ContentFade fade = (ContentFade) v.getTag(R.id.navdrawer_content_fade);
+                if (fade != null && fade.mRunning) {
+                    fade.mFinishActions.add(action);
+                    return;
+                }
+                break;
+            }
+        }
+        action.run();
+    }
+
+    private void fadeContent(boolean fadeIn, Runnable endAction) {
+        boolean first = true;
         for (int i = 0; i < getChildCount(); i++) {
             View v = getChildAt(i);
             if (isContentView(v)) {
-                v.animate().alpha(1).setDuration(MAIN_CONTENT_FADEIN_DURATION);
+                ContentFade fade = (ContentFade) v.getTag(R.id.navdrawer_content_fade);
+                if (fade == null) {
+                    fade = new ContentFade(v);
+                    v.setTag(R.id.navdrawer_content_fade, fade);
+                }
+                // all content views fade at the same time, only the first one is tracked
+                fade.start(fadeIn, first, first ? endAction : null);
+                first = false;
             }
         }
+        if (first && endAction != null) {
+            // no content
+            endAction.run();
+        }
     }
 
     @Override
     protected void onFinishInflate() {
         LayoutInflater inflater = LayoutInflater.from(getContext());
         // we add the nav drawer
-        mNavdrawer = (ViewGroup) inflater.inflate(NAVDRAWER_LAYOUT, this, false);
+        mNavdrawer = (ViewGroup) inflater.inflate(mVirtualized ? NAVDRAWER_VIRTUALIZED_LAYOUT : NAVDRAWER_LAYOUT,
+                this, false);
         if (mNavdrawer != null) {
             addView(mNavdrawer);
-            mDrawerItemsListContainer = (ViewGroup) mNavdrawer.findViewById(android.R.id.list);
-            if (mHasHeader) {
-                mHeader = inflater.inflate(mHeaderLayoutRes, mNavdrawer, false);
-                setHeader(mHeader);
+            if (mVirtualized) {
+                mListView = (ListView) mNavdrawer.findViewById(android.R.id.list);
+                // the header holder has to be added before the adapter is set (pre KitKat)
+                mContentHolder = (ViewGroup) inflater.inflate(NAVDRAWER_VIRTUALIZED_HEADER_HOLDER_LAYOUT,
+                        mListView, false);
+                mListView.addHeaderView(mContentHolder, null, false);
+                mAdapter = new NavDrawerAdapter(getContext(), mInternalListener);
+                mAdapter.setMetrics(mMetrics);
+                mListView.setAdapter(mAdapter);
+            } else {
+                mDrawerItemsListContainer = (ViewGroup) mNavdrawer.findViewById(android.R.id.list);
+                mContentHolder = (ViewGroup) mNavdrawer.findViewById(R.id.navdrawer_content_holder);
             }
+            if (!mLazyInit) {
+                mContentBuilt = true;
+                inflateHeader();
+            }
+        }
+        super.onFinishInflate();
+    }
+
+    private void inflateHeader() {
+        if (mHasHeader && mHeader == null) {
+            mHeader = LayoutInflater.from(getContext()).inflate(mHeaderLayoutRes, mNavdrawer, false);
+            setHeader(mHeader);
             if (mHeader != null) {
                 mHeader.setOnClickListener(mHeaderClickListener);
             }
         }
-        super.onFinishInflate();
+    }
+
+    /**
+     * Build the header and the rows if they have been deferred in lazy mode.
+     */
+    private void ensureDrawerContent() {
+        if (!isContentDeferred()) {
+            return;
+        }
+        mContentBuilt = true;
+        getViewTreeObserver().removeOnPreDrawListener(mFirstFrameListener);
+        Looper.myQueue().removeIdleHandler(mIdleHandler);
+        inflateHeader();
+        if (mPendingHeaderUpdates != null) {
+            for (Runnable update : mPendingHeaderUpdates) {
+                update.run();
+            }
+            mPendingHeaderUpdates = null;
+        }
+        if (mDataProvider != null) {
+            updateItems();
+        }
+    }
+
+    private boolean isContentDeferred() {
+        return mLazyInit && !mContentBuilt && mNavdrawer != null;
+    }
+
+    /**
+     * Check whether header updates have to be deferred until the header is inflated.
+     */
+    private boolean isHeaderDeferred() {
+        return isContentDeferred() && mHasHeader && mHeader == null;
+    }
+
+    private void deferHeaderUpdate(Runnable update) {
+        if (mPendingHeaderUpdates == null) {
+            mPendingHeaderUpdates = new ArrayList<Runnable>();
+        }
+        mPendingHeaderUpdates.add(update);
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        saveScrollState(state);
+        if (mHasPendingSelectedId) {
+            state.hasSelectedId = true;
+            state.selectedId = mPendingSelectedId;
+        } else if (mSelectedEntry != null && !isAccountListShown()
+                && mSelectedEntry.getId() < NavDrawerEntry.FIRST_GENERATED_ID) {
+            // generated IDs depend on the order in which entries are created and are not stable
+            // across process death, only explicit IDs can be restored
+            state.hasSelectedId = true;
+            state.selectedId = mSelectedEntry.getId();
+        }
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState ss = (SavedState) state;
+        // restores the open state of the drawer
+        super.onRestoreInstanceState(ss.getSuperState());
+        restoreScrollState(ss);
+        if (ss.hasSelectedId) {
+            mHasPendingSelectedId = true;
+            mPendingSelectedId = ss.selectedId;
+            if (mDataProvider != null) {
+                updateItems();
+            }
+        }
+        if (mNavdrawer != null && isDrawerVisible(mNavdrawer)) {
+            // the drawer has been restored in open state
+            ensureDrawerContent();
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        if (mHasPendingScroll) {
+            applyPendingScroll();
+        }
+    }
+
+    /**
+     * Store the current scroll position of the drawer in the given state.
+     *
+     * @return true if a scroll position has been stored
+     */
+    private boolean saveScrollState(SavedState state) {
+        state.virtualized = mVirtualized;
+        if (mHasPendingScroll) {
+            // the rows have not been laid out since the state has been restored
+            state.hasScroll = true;
+            state.scrollY = mPendingScrollY;
+            state.listPosition = mPendingListPosition;
+            state.listTop = mPendingListTop;
+        } else if (mVirtualized) {
+            if (mListView != null && mListView.getChildCount() > 0) {
+                state.hasScroll = true;
+                state.listPosition = mListView.getFirstVisiblePosition();
+                state.listTop = mListView.getChildAt(0).getTop() - mListView.getPaddingTop();
+            }
+        } else if (mNavdrawer != null && mEntryViews.size() > 0) {
+            state.hasScroll = true;
+            state.scrollY = mNavdrawer.getScrollY();
+        }
+        return state.hasScroll;
+    }
+
+    private void restoreScrollState(SavedState state) {
+        if (!state.hasScroll || state.virtualized != mVirtualized) {
+            return;
+        }
+        mHasPendingScroll = true;
+        mPendingScrollY = state.scrollY;
+        mPendingListPosition = state.listPosition;
+        mPendingListTop = state.listTop;
+        requestLayout();
+    }
+
+    private void applyPendingScroll() {
+        if (mVirtualized) {
+            if (mListView == null || mAdapter.getCount() == 0) {
+                return; // no rows yet
+            }
+            // the drawer might have less entries than before
+            int position = Math.min(mPendingListPosition, mListView.getCount() - 1);
+            mListView.setSelectionFromTop(position, mPendingListTop);
+        } else {
+            if (mNavdrawer == null || mEntryViews.size() == 0) {
+                return; // no rows yet
+            }
+            // clamped by the scroll view
+            mNavdrawer.scrollTo(0, mPendingScrollY);
+        }
+        mHasPendingScroll = false;
+    }
+
+    private void saveHandoffState() {
+        SavedState state = new SavedState(BaseSavedState.EMPTY_STATE);
+        if (saveScrollState(state)) {
+            sHandoffState = state;
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mRowsReleased) {
+            // the layout has been re-attached after its rows went back to the pool
+            mRowsReleased = false;
+            createNavDrawerItems();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mStateHandoff) {
+            // has to be saved before the rows are released
+            saveHandoffState();
+        }
+        releaseRowsToPool();
+        // the activity is going away, it must not be notified anymore
+        cancelPendingLaunch();
+        getViewTreeObserver().removeOnPreDrawListener(mFirstFrameListener);
+        Looper.myQueue().removeIdleHandler(mIdleHandler);
+        if (mPendingInflation != null) {
+            mPendingInflation.cancel();
+            mPendingInflation = null;
+        }
+    }
+
+    @Override
+    public void setDrawerListener(DrawerListener listener) {
+        // the internal listener stays registered and forwards all events
+        mDrawerListener = listener;
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        ThemeColors.invalidate();
     }
 
     public void setDataProvider(NavDrawerDataProvider dataProvider) {
         mDataProvider = dataProvider;
-        updateItems();
+        if (mStateHandoff && sHandoffState != null && !mHasPendingScroll) {
+            // continue where the previous activity left off, unless the state has been restored
+            restoreScrollState(sHandoffState);
+        }
+        if (isContentDeferred()) {
+            // build the drawer once the first frame is drawn or the drawer is opened
+            getViewTreeObserver().removeOnPreDrawListener(mFirstFrameListener);
+            getViewTreeObserver().addOnPreDrawListener(mFirstFrameListener);
+        } else {
+            updateItems();
+        }
+        updateAccountHeader();
         // show the drawer on first start
         if (shouldShowDrawer()) {
             openDrawer();
@@ -207,36 +681,577 @@ public class NavDrawerLayout extends DrawerLayout {
         }
     }
 
+    /**
+     * Set the listener that is notified about clicked entries and header clicks.
+     * If it also implements {@link PrefetchListener}, it is notified about clicked entries before
+     * the launch delay.
+     *
+     * @param navigationListener the listener
+     */
     public void setNavigationListener(NavigationListener navigationListener) {
         mNavigationListener = navigationListener;
     }
 
+    /**
+     * Get the metrics that receive the timings and counts of this layout.
+     *
+     * @return the metrics or null
+     */
+    public NavDrawerMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Set the metrics that receive timings (e.g. inflation and launch times) and counts
+     * (e.g. formatted rows) of this layout. Nothing is measured if no metrics are set.
+     *
+     * @param metrics the metrics or null to stop measuring
+     */
+    public void setMetrics(NavDrawerMetrics metrics) {
+        mMetrics = metrics;
+        if (mAdapter != null) {
+            mAdapter.setMetrics(metrics);
+        }
+    }
+
     protected boolean isContentView(View child) {
         return ((LayoutParams) child.getLayoutParams()).gravity == Gravity.NO_GRAVITY;
     }
 
+    /**
+     * Reload the navigation drawer entries from the data provider.
+     * Only the entries that have been added, removed, moved or (de-)selected are updated.
+     */
+    public void notifyDataSetChanged() {
+        updateAccountHeader();
+        updateItems();
+    }
+
     protected void updateItems() {
-        if (!hasDrawer()) {
+        if (!hasDrawer() || isContentDeferred()) {
             return; // nothing to do
         }
-        mEntryList.clear();
-        mEntryList.addAll(mDataProvider.getNavDrawerItems());
+        NavDrawerModel model = getModel();
+        NavDrawerEntry selectedEntry = resolveSelectedEntry(model);
+        boolean hasRows = mVirtualized || mEntryViews.size() > 0;
+        if (model == mModel && hasRows) {
+            // same structure, only the selection might have changed
+            setSelectedEntry(selectedEntry);
+            return;
+        }
+        if (!mVirtualized && hasRows && mDrawerItemsListContainer != null) {
+            if (mRowsShowAccounts != isAccountListShown()) {
+                swapDetachedRows();
+            }
+            applyItemChanges(model, selectedEntry);
+            return;
+        }
+        mModel = model;
+        mSelectedEntry = selectedEntry;
         createNavDrawerItems();
     }
 
+    private NavDrawerEntry resolveSelectedEntry(NavDrawerModel model) {
+        if (isAccountListShown()) {
+            return getAccountEntry(((NavDrawerAccountProvider) mDataProvider).getActiveNavDrawerAccount());
+        }
+        if (mHasPendingSelectedId) {
+            // the restored selection takes precedence once
+            mHasPendingSelectedId = false;
+            int position = model.indexOfId(mPendingSelectedId);
+            if (position >= 0) {
+                return model.get(position);
+            }
+        }
+        return mDataProvider.getSelectedNavDrawerItem();
+    }
+
+    private NavDrawerModel getModel() {
+        if (isAccountListShown()) {
+            return getAccountModel();
+        }
+        if (mDataProvider instanceof NavDrawerModelProvider) {
+            return ((NavDrawerModelProvider) mDataProvider).getNavDrawerModel();
+        }
+        return NavDrawerModel.compile(mDataProvider);
+    }
+
+    /**
+     * Update the existing rows to match the given entries. Entries are matched by ID.
+     * Rows of removed entries are re-bound to new entries with the same layout if possible,
+     * so that only new entries with a new layout have to be inflated.
+     */
+    private void applyItemChanges(NavDrawerModel model, NavDrawerEntry selectedEntry) {
+        SparseArray<List<View>> scrapViews = new SparseArray<List<View>>();
+
+        // remove
+        for (int i = 0; i < mModel.size(); i++) {
+            NavDrawerEntry entry = mModel.get(i);
+            int position = model.indexOfId(entry.getId());
+            if (position < 0 || model.getLayoutResId(position) != mModel.getLayoutResId(i)) {
+                View view = mEntryViews.get(entry.getId());
+                mEntryViews.remove(entry.getId());
+                if (view != null) {
+                    mDrawerItemsListContainer.removeView(view);
+                    if (mUseSharedViewPool) {
+                        // might be released to the pool below
+                        entry.unbindView(view);
+                    }
+                    List<View> scrap = scrapViews.get(mModel.getLayoutResId(i));
+                    if (scrap == null) {
+                        scrap = new ArrayList<View>();
+                        scrapViews.put(mModel.getLayoutResId(i), scrap);
+                    }
+                    scrap.add(view);
+                }
+            }
+        }
+
+        NavDrawerEntry previousSelectedEntry = mSelectedEntry;
+        mSelectedEntry = selectedEntry;
+        for (int i = 0; i < model.size(); i++) {
+            NavDrawerEntry entry = model.get(i);
+            View view = mEntryViews.get(entry.getId());
+            if (view == null) {
+                // insert
+                List<View> scrap = scrapViews.get(model.getLayoutResId(i));
+                if (scrap != null && !scrap.isEmpty()) {
+                    view = scrap.remove(scrap.size() - 1);
+                } else {
+                    view = inflateRow(entry);
+                }
+                bindRow(entry, view, entry == selectedEntry);
+                mEntryViews.put(entry.getId(), view);
+                mDrawerItemsListContainer.addView(view, i);
+                continue;
+            }
+            if (mDrawerItemsListContainer.getChildAt(i) != view) {
+                // move
+                mDrawerItemsListContainer.removeView(view);
+                mDrawerItemsListContainer.addView(view, i);
+            }
+            if (mModel.get(mModel.indexOfId(entry.getId())) != entry) {
+                // the entry has been replaced by a new entry with the same ID
+                bindRow(entry, view, entry == selectedEntry);
+            } else if (entry == previousSelectedEntry || entry == selectedEntry) {
+                // rebind the selection state
+                entry.formatView(getContext(), view, entry == selectedEntry);
+                if (mMetrics != null) {
+                    mMetrics.onEntryFormatted(entry);
+                }
+            }
+        }
+
+        mModel = model;
+        if (mUseSharedViewPool) {
+            releaseScrapToPool(scrapViews);
+        }
+    }
+
+    /**
+     * Move the removed rows that have not been reused to the shared view pool.
+     *
+     * @param scrapViews layout resource ID -> unbound rows
+     */
+    private void releaseScrapToPool(SparseArray<List<View>> scrapViews) {
+        NavDrawerViewPool pool = NavDrawerViewPool.getInstance(getContext());
+        for (int i = 0; i < scrapViews.size(); i++) {
+            int layoutResId = scrapViews.keyAt(i);
+            for (View view : scrapViews.valueAt(i)) {
+                pool.release(view, getThemeResId(), layoutResId);
+            }
+        }
+    }
+
+    /**
+     * Swap the attached rows with the detached rows of the entries or the account list, so that
+     * toggling the account list only updates the rows that changed in the meantime.
+     */
+    private void swapDetachedRows() {
+        NavDrawerModel model = mModel;
+        SparseArray<View> entryViews = mEntryViews;
+        NavDrawerEntry selectedEntry = mSelectedEntry;
+        mModel = mDetachedModel;
+        mEntryViews = mDetachedEntryViews;
+        mSelectedEntry = mDetachedSelectedEntry;
+        mDetachedModel = model;
+        mDetachedEntryViews = entryViews;
+        mDetachedSelectedEntry = selectedEntry;
+        mRowsShowAccounts = !mRowsShowAccounts;
+
+        mDrawerItemsListContainer.removeAllViews();
+        for (int i = 0; i < mModel.size(); i++) {
+            View view = mEntryViews.get(mModel.get(i).getId());
+            if (view != null) {
+                mDrawerItemsListContainer.addView(view);
+            }
+        }
+    }
+
+    private void clearDetachedRows() {
+        mDetachedModel = NavDrawerModel.EMPTY;
+        mDetachedEntryViews.clear();
+        mDetachedSelectedEntry = null;
+    }
+
     protected void createNavDrawerItems() {
-        mEntryMap.clear();
-        if (mDrawerItemsListContainer == null) {
+        long start = mMetrics != null ? System.nanoTime() : 0;
+        mEntryViews.clear();
+        // all rows are created for the current model
+        clearDetachedRows();
+        mRowsShowAccounts = isAccountListShown();
+        if (mVirtualized) {
+            if (mListView == null) {
+                return;
+            }
+            mAdapter.setSelectedEntry(mSelectedEntry);
+            if (mAdapter.setModel(mModel)) {
+                // the view types changed -> the list view has to drop its recycled views
+                mListView.setAdapter(mAdapter);
+            } else {
+                mAdapter.notifyDataSetChanged();
+            }
+        } else {
+            if (mDrawerItemsListContainer == null) {
+                return;
+            }
+            if (mPendingInflation != null) {
+                mPendingInflation.cancel();
+                mPendingInflation = null;
+            }
+            if (mAsyncInflation && !mUseSharedViewPool && !isDrawerVisible(mNavdrawer)) {
+                inflateItemsAsync();
+            } else {
+                attachItems(null);
+            }
+        }
+        if (mMetrics != null && start != 0) {
+            mMetrics.onEntriesCreated(mModel.size(), System.nanoTime() - start);
+        }
+    }
+
+    private void inflateItemsAsync() {
+        if (mAsyncInflater == null) {
+            mAsyncInflater = new AsyncEntryInflater(mHandler);
+        }
+        mDrawerItemsListContainer.removeAllViews();
+        mPendingInflation = mAsyncInflater.inflate(getContext(), mModel.getEntries(), mDrawerItemsListContainer,
+                new AsyncEntryInflater.Callback() {
+                    @Override
+                    public void onInflated(View[] views, long[] inflateNanos) {
+                        mPendingInflation = null;
+                        reportInflations(views, inflateNanos);
+                        attachItems(views);
+                    }
+                });
+    }
+
+    private View inflateRow(NavDrawerEntry entry) {
+        Context context = getContext();
+        if (mUseSharedViewPool) {
+            NavDrawerViewPool pool = NavDrawerViewPool.getInstance(context);
+            View view = pool.acquire(context, getThemeResId(), entry.getLayoutResId());
+            if (view != null) {
+                return view;
+            }
+            context = pool.createViewContext(context);
+        }
+        long start = mMetrics != null ? System.nanoTime() : 0;
+        View view = entry.inflateView(context, mDrawerItemsListContainer);
+        if (mMetrics != null && start != 0) {
+            mMetrics.onEntryInflated(entry.getLayoutResId(), System.nanoTime() - start);
+        }
+        return view;
+    }
+
+    private void reportInflations(View[] views, long[] inflateNanos) {
+        if (mMetrics == null) {
+            return;
+        }
+        for (int i = 0; i < views.length && i < mModel.size(); i++) {
+            if (views[i] != null) {
+                mMetrics.onEntryInflated(mModel.getLayoutResId(i), inflateNanos[i]);
+            }
+        }
+    }
+
+    private void bindRow(NavDrawerEntry entry, View view, boolean selected) {
+        entry.bindView(getContext(), view, selected, mInternalListener);
+        if (mMetrics != null) {
+            mMetrics.onEntryFormatted(entry);
+        }
+    }
+
+    /**
+     * Move all rows to the shared view pool so that the next activity can reuse them.
+     */
+    private void releaseRowsToPool() {
+        if (!mUseSharedViewPool || mEntryViews.size() == 0 || mDrawerItemsListContainer == null) {
             return;
         }
-        for (NavDrawerEntry entry : mEntryList) {
-            View v = entry.createView(getContext(), mDrawerItemsListContainer,
-                    entry == mDataProvider.getSelectedNavDrawerItem(), mInternalListener);
-            mEntryMap.put(entry, v);
+        NavDrawerViewPool pool = NavDrawerViewPool.getInstance(getContext());
+        mDrawerItemsListContainer.removeAllViews();
+        releaseRows(pool, mModel, mEntryViews);
+        releaseRows(pool, mDetachedModel, mDetachedEntryViews);
+        clearDetachedRows();
+        mRowsReleased = true;
+    }
+
+    private void releaseRows(NavDrawerViewPool pool, NavDrawerModel model, SparseArray<View> entryViews) {
+        for (int i = 0; i < model.size(); i++) {
+            NavDrawerEntry entry = model.get(i);
+            View view = entryViews.get(entry.getId());
+            if (view != null) {
+                entry.unbindView(view);
+                pool.release(view, getThemeResId(), model.getLayoutResId(i));
+            }
+        }
+        entryViews.clear();
+    }
+
+    private int getThemeResId() {
+        if (mThemeResId == 0) {
+            mThemeResId = resolveThemeResId();
+        }
+        return mThemeResId;
+    }
+
+    /**
+     * Get the theme resource ID of the activity hosting this layout.
+     * Rows in the shared view pool are only reused by activities with the same theme.
+     * Override this if your activity changes its theme with setTheme(int) and does not extend
+     * {@link NavDrawerActivity}.
+     *
+     * @return the theme resource ID
+     */
+    protected int resolveThemeResId() {
+        Context context = getContext();
+        while (context instanceof ContextWrapper && !(context instanceof Activity)) {
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        if (context instanceof NavDrawerActivity && ((NavDrawerActivity) context).getNavDrawerThemeResId() != 0) {
+            // the theme has been changed with setTheme(int)
+            return ((NavDrawerActivity) context).getNavDrawerThemeResId();
+        }
+        if (context instanceof Activity) {
+            Activity activity = (Activity) context;
+            try {
+                ActivityInfo info = activity.getPackageManager().getActivityInfo(activity.getComponentName(), 0);
+                return info.getThemeResource();
+            } catch (PackageManager.NameNotFoundException e) {
+                // fall back to the application theme
+            }
+        }
+        return getContext().getApplicationInfo().theme;
+    }
+
+    /**
+     * Attach the rows synchronously if they are still being inflated in the background.
+     * The views that are already inflated are used.
+     */
+    private void finishPendingInflation() {
+        if (mPendingInflation != null) {
+            View[] views = mPendingInflation.cancel();
+            reportInflations(views, mPendingInflation.getInflateNanos());
+            mPendingInflation = null;
+            attachItems(views);
+        }
+    }
+
+    /**
+     * Bind and attach the rows for the current model.
+     *
+     * @param views pre-inflated views in the order of the model (or null); missing views are inflated
+     */
+    private void attachItems(View[] views) {
+        mEntryViews.clear();
+        mDrawerItemsListContainer.removeAllViews();
+        for (int i = 0; i < mModel.size(); i++) {
+            NavDrawerEntry entry = mModel.get(i);
+            View v = views != null && i < views.length ? views[i] : null;
+            if (v == null) {
+                v = inflateRow(entry);
+            }
+            bindRow(entry, v, entry == mSelectedEntry);
+            mEntryViews.put(entry.getId(), v);
             mDrawerItemsListContainer.addView(v);
         }
     }
 
+    /**
+     * Get the currently highlighted navigation drawer entry.
+     *
+     * @return the selected entry or null
+     */
+    public NavDrawerEntry getSelectedEntry() {
+        return mSelectedEntry;
+    }
+
+    /**
+     * Highlight the given navigation drawer entry without rebuilding the drawer.
+     * Only the rows of the previously selected and the new entry are updated.
+     *
+     * @param entry the entry to select or null to clear the selection
+     */
+    public void setSelectedEntry(NavDrawerEntry entry) {
+        NavDrawerEntry previousEntry = mSelectedEntry;
+        if (previousEntry == entry) {
+            return;
+        }
+        mSelectedEntry = entry;
+        if (mAdapter != null) {
+            mAdapter.setSelectedEntry(entry);
+        }
+        formatEntry(previousEntry, false);
+        formatEntry(entry, true);
+    }
+
+    private void formatEntry(NavDrawerEntry entry, boolean selected) {
+        if (entry != null) {
+            View view = getEntryView(entry.getId());
+            if (view != null) {
+                entry.formatView(getContext(), view, selected);
+                if (mMetrics != null) {
+                    mMetrics.onEntryFormatted(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the row of the entry with the given ID, see {@link NavDrawerEntry#getId()}.
+     *
+     * @param id the entry ID
+     * @return the row or null if the row is not inflated (e.g. scrolled out of view in virtualized mode)
+     */
+    public View getEntryView(int id) {
+        if (!mVirtualized) {
+            return mEntryViews.get(id);
+        }
+        if (mListView == null) {
+            return null;
+        }
+        int position = mModel.indexOfId(id);
+        if (position < 0) {
+            return null;
+        }
+        int index = position + mListView.getHeaderViewsCount() - mListView.getFirstVisiblePosition();
+        if (index >= 0 && index < mListView.getChildCount()) {
+            return mListView.getChildAt(index);
+        }
+        return null;
+    }
+
+    /**
+     * Check whether rows are shared with other activities through the {@link NavDrawerViewPool}.
+     *
+     * @return true if the shared view pool is used
+     */
+    public boolean isUseSharedViewPool() {
+        return mUseSharedViewPool;
+    }
+
+    /**
+     * Reuse the rows of destroyed activities with the same theme instead of inflating them again.
+     * The rows of this layout are returned to the pool when the layout is detached.
+     * Does not have any effect in virtualized mode, and rows are always inflated synchronously.
+     *
+     * @param useSharedViewPool true if the shared view pool should be used
+     */
+    public void setUseSharedViewPool(boolean useSharedViewPool) {
+        mUseSharedViewPool = useSharedViewPool;
+    }
+
+    /**
+     * Check whether the scroll position is handed over to the drawer of the next activity.
+     *
+     * @return true if the state handoff is enabled
+     */
+    public boolean isStateHandoff() {
+        return mStateHandoff;
+    }
+
+    /**
+     * Hand the scroll position of the drawer over to the drawer of the next activity, so that users
+     * with long drawers do not have to scroll again after every navigation. The position is kept in memory
+     * and taken over by the next layout with the state handoff enabled when its data provider is set.
+     * A position restored from the saved instance state takes precedence.
+     *
+     * @param stateHandoff true if the scroll position should be handed over
+     */
+    public void setStateHandoff(boolean stateHandoff) {
+        mStateHandoff = stateHandoff;
+    }
+
+    /**
+     * Check whether the drawer content is built lazily.
+     *
+     * @return true if lazy initialization is enabled
+     */
+    public boolean isLazyInit() {
+        return mLazyInit;
+    }
+
+    /**
+     * Defer inflating the header and the rows until the drawer is opened for the first time
+     * or the main thread is idle after the first frame. This has to be called before the drawer is inflated,
+     * i.e. for layouts that are created in code. Otherwise, use the <code>lazyInit</code> XML attribute.
+     *
+     * @param lazyInit true if the drawer content should be built lazily
+     */
+    public void setLazyInit(boolean lazyInit) {
+        if (mNavdrawer != null) {
+            throw new IllegalStateException("The drawer has already been inflated");
+        }
+        mLazyInit = lazyInit;
+    }
+
+    /**
+     * Check whether the rows are inflated on a background thread.
+     *
+     * @return true if asynchronous inflation is enabled
+     */
+    public boolean isAsyncInflation() {
+        return mAsyncInflation;
+    }
+
+    /**
+     * Inflate the rows on a background thread and attach them once they are ready, so that
+     * setting up the drawer does not block the first frame. If the drawer is opened before the rows
+     * are ready, the remaining rows are inflated synchronously.
+     * Custom entry layouts must not contain views that can only be created on the main thread.
+     * Does not have any effect in virtualized mode.
+     *
+     * @param asyncInflation true if rows should be inflated in the background
+     */
+    public void setAsyncInflation(boolean asyncInflation) {
+        mAsyncInflation = asyncInflation;
+    }
+
+    /**
+     * Check whether the drawer is virtualized, i.e. whether only the visible rows are inflated
+     * and recycled on scroll. This can be enabled with the <code>virtualized</code> XML attribute
+     * and is recommended for drawers with a large number of entries.
+     *
+     * @return true if the drawer is virtualized
+     */
+    public boolean isVirtualized() {
+        return mVirtualized;
+    }
+
+    /**
+     * Enable or disable the virtualized mode. This has to be called before the drawer is inflated,
+     * i.e. for layouts that are created in code. Otherwise, use the <code>virtualized</code> XML attribute.
+     *
+     * @param virtualized true if only the visible rows should be inflated
+     */
+    public void setVirtualized(boolean virtualized) {
+        if (mNavdrawer != null) {
+            throw new IllegalStateException("The drawer has already been inflated");
+        }
+        mVirtualized = virtualized;
+    }
+
     public boolean hasDrawer() {
         return mNavdrawer != null;
     }
@@ -250,6 +1265,8 @@ public class NavDrawerLayout extends DrawerLayout {
 
     public void openDrawer() {
         if (mNavdrawer != null) {
+            ensureDrawerContent();
+            finishPendingInflation();
             openDrawer(mNavdrawer);
         }
     }
@@ -269,16 +1286,15 @@ public class NavDrawerLayout extends DrawerLayout {
     }
 
     public void setHeader(View header) {
-        if (mNavdrawer != null) {
-            ViewGroup contentHolder = (ViewGroup) mNavdrawer.findViewById(R.id.navdrawer_content_holder);
+        if (mContentHolder != null) {
             if (mHeader != null) {
                 // replace the header
-                contentHolder.removeView(mHeader);
+                mContentHolder.removeView(mHeader);
             }
             mHeader = header;
             if (mHeader != null) {
                 mHasHeader = true;
-                contentHolder.addView(mHeader, 0);
+                mContentHolder.addView(mHeader, 0);
             } else {
                 mHasHeader = false;
             }
@@ -298,65 +1314,335 @@ public class NavDrawerLayout extends DrawerLayout {
         }
     }
 
-    public void setHeaderTitle(String title) {
+    public void setHeaderTitle(final String title) {
+        if (isHeaderDeferred()) {
+            deferHeaderUpdate(new Runnable() {
+                @Override
+                public void run() {
+                    setHeaderTitle(title);
+                }
+            });
+            return;
+        }
         NavDrawerHeader header = getDefaultHeader();
         if (header != null) {
             header.setTitle(title);
         }
     }
 
-    public void setHeaderSubtitle(String subtitle) {
+    public void setHeaderSubtitle(final String subtitle) {
+        if (isHeaderDeferred()) {
+            deferHeaderUpdate(new Runnable() {
+                @Override
+                public void run() {
+                    setHeaderSubtitle(subtitle);
+                }
+            });
+            return;
+        }
         NavDrawerHeader header = getDefaultHeader();
         if (header != null) {
             header.setSubtitle(subtitle);
         }
     }
 
-    public void setHeaderIcon(Drawable icon) {
+    public void setHeaderIcon(final Drawable icon) {
+        if (isHeaderDeferred()) {
+            deferHeaderUpdate(new Runnable() {
+                @Override
+                public void run() {
+                    setHeaderIcon(icon);
+                }
+            });
+            return;
+        }
         NavDrawerHeader header = getDefaultHeader();
         if (header != null) {
             header.setIcon(icon);
         }
     }
 
-    public void setHeaderBackground(Drawable background) {
+    /**
+     * Set the header icon to the given avatar, which is decoded in the background and cached.
+     *
+     * @param source the avatar source, e.g. {@link NavDrawerAvatarLoader.Source#fromFile(java.io.File)},
+     *               or null to show the default icon
+     */
+    public void setHeaderAvatar(final NavDrawerAvatarLoader.Source source) {
+        if (isHeaderDeferred()) {
+            deferHeaderUpdate(new Runnable() {
+                @Override
+                public void run() {
+                    setHeaderAvatar(source);
+                }
+            });
+            return;
+        }
+        NavDrawerHeader header = getDefaultHeader();
+        if (header != null) {
+            header.setAvatar(source);
+        }
+    }
+
+    /**
+     * Update all values of the default header at once. Unchanged values are skipped,
+     * so this can be called in every onResume() without relayouting the header.
+     *
+     * @param title      the title
+     * @param subtitle   the subtitle
+     * @param icon       the icon, or null to keep the header avatar or to use the default icon
+     * @param background the background
+     */
+    public void setHeaderInfo(final String title, final String subtitle, final Drawable icon,
+                              final Drawable background) {
+        if (isHeaderDeferred()) {
+            deferHeaderUpdate(new Runnable() {
+                @Override
+                public void run() {
+                    setHeaderInfo(title, subtitle, icon, background);
+                }
+            });
+            return;
+        }
+        NavDrawerHeader header = getDefaultHeader();
+        if (header != null) {
+            header.setInfo(title, subtitle, icon, background);
+        }
+    }
+
+    public void setHeaderBackground(final Drawable background) {
+        if (isHeaderDeferred()) {
+            deferHeaderUpdate(new Runnable() {
+                @Override
+                public void run() {
+                    setHeaderBackground(background);
+                }
+            });
+            return;
+        }
         NavDrawerHeader header = getDefaultHeader();
         if (header != null) {
             Utils.setBackground(header, background);
         }
     }
 
-    public void setHeaderBackgroundColor(int backgroundColor) {
+    public void setHeaderBackgroundColor(final int backgroundColor) {
+        if (isHeaderDeferred()) {
+            deferHeaderUpdate(new Runnable() {
+                @Override
+                public void run() {
+                    setHeaderBackgroundColor(backgroundColor);
+                }
+            });
+            return;
+        }
         NavDrawerHeader header = getDefaultHeader();
         if (header != null) {
             header.setBackgroundColor(backgroundColor);
         }
     }
 
-    public void setHeaderBackgroundResource(int backgroundResource) {
+    public void setHeaderBackgroundResource(final int backgroundResource) {
+        if (isHeaderDeferred()) {
+            deferHeaderUpdate(new Runnable() {
+                @Override
+                public void run() {
+                    setHeaderBackgroundResource(backgroundResource);
+                }
+            });
+            return;
+        }
         NavDrawerHeader header = getDefaultHeader();
         if (header != null) {
             header.setBackgroundResource(backgroundResource);
         }
     }
 
+    /**
+     * @return true if the data provider is a {@link NavDrawerAccountProvider} with more than one account
+     */
+    public boolean hasMultipleAccounts() {
+        if (mDataProvider instanceof NavDrawerAccountProvider) {
+            List<NavDrawerAccount> accounts = ((NavDrawerAccountProvider) mDataProvider).getNavDrawerAccounts();
+            return accounts != null && accounts.size() > 1;
+        }
+        return false;
+    }
+
+    public boolean isAccountListExpanded() {
+        return mAccountListExpanded;
+    }
+
+    /**
+     * Show the list of accounts instead of the navigation drawer entries or vice versa.
+     * The account list is collapsed automatically when the drawer is closed.
+     *
+     * @param expanded true to show the accounts
+     */
+    public void setAccountListExpanded(boolean expanded) {
+        if (mAccountListExpanded != expanded) {
+            mAccountListExpanded = expanded;
+            updateItems();
+        }
+    }
+
+    private boolean isAccountListShown() {
+        return mAccountListExpanded && mDataProvider instanceof NavDrawerAccountProvider;
+    }
+
+    private NavDrawerModel getAccountModel() {
+        List<NavDrawerAccount> accounts = ((NavDrawerAccountProvider) mDataProvider).getNavDrawerAccounts();
+        if (mAccountEntries == null) {
+            mAccountEntries = new SparseArray<NavDrawerAccountEntry>();
+        }
+        List<NavDrawerEntry> entries = new ArrayList<NavDrawerEntry>(accounts.size());
+        for (NavDrawerAccount account : accounts) {
+            entries.add(getAccountEntry(account));
+        }
+        return NavDrawerModel.compile(entries);
+    }
+
+    /**
+     * Get the entry of the given account. Entries are reused as long as the account does not change,
+     * so that rows are not re-bound when the account list is shown again.
+     */
+    private NavDrawerAccountEntry getAccountEntry(NavDrawerAccount account) {
+        if (account == null || mAccountEntries == null) {
+            return null;
+        }
+        NavDrawerAccountEntry entry = mAccountEntries.get(account.getId());
+        if (entry == null || entry.getAccount() != account) {
+            // the new entry gets a new ID, the row of the old entry is re-bound to it without inflating
+            entry = new NavDrawerAccountEntry(account);
+            mAccountEntries.put(account.getId(), entry);
+        }
+        return entry;
+    }
+
+    private void selectAccount(NavDrawerAccount account) {
+        NavDrawerAccountProvider provider = (NavDrawerAccountProvider) mDataProvider;
+        mAccountListExpanded = false;
+        if (!account.equals(provider.getActiveNavDrawerAccount())) {
+            provider.onNavDrawerAccountSelected(account);
+            updateAccountHeader();
+        }
+        // swaps the account rows for the entries of the active account
+        updateItems();
+    }
+
+    private void updateAccountHeader() {
+        if (!(mDataProvider instanceof NavDrawerAccountProvider)) {
+            return;
+        }
+        NavDrawerAccount account = ((NavDrawerAccountProvider) mDataProvider).getActiveNavDrawerAccount();
+        if (account == null) {
+            return;
+        }
+        setHeaderTitle(account.getName());
+        setHeaderSubtitle(account.getEmail());
+        if (account.getAvatar() != null) {
+            setHeaderAvatar(account.getAvatar());
+        } else {
+            setHeaderIcon(null);
+        }
+    }
+
     public boolean hasDefaultHeader() {
         return mHeader instanceof NavDrawerHeader;
     }
 
 
+    /**
+     * @deprecated no longer used, overriding this method has no effect. The first-run flag is read and
+     * written through {@link NavDrawerFirstRun}. To keep it in other preferences, override
+     * {@link NavDrawerFirstRun.SharedPreferencesStorage#getPrefs(Context)} and pass the storage to
+     * {@link NavDrawerFirstRun#setStorage(NavDrawerFirstRun.Storage)}.
+     */
+    @Deprecated
     protected SharedPreferences getPrefs() {
-        return getContext().getSharedPreferences(PREFS_FILE_NAME, Context.MODE_PRIVATE);
+        return getContext().getSharedPreferences(NavDrawerFirstRun.SharedPreferencesStorage.PREFS_FILE_NAME,
+                Context.MODE_PRIVATE);
     }
 
+    /**
+     * Check whether the drawer should be opened because the user has not seen it yet.
+     * The flag is cached in memory, see {@link NavDrawerFirstRun}.
+     *
+     * @return true if the drawer should be shown
+     */
     protected boolean shouldShowDrawer() {
-        SharedPreferences sp = getPrefs();
-        return sp.getBoolean(PREF_SHOW_DRAWER, true);
+        return NavDrawerFirstRun.shouldShowDrawer(getContext());
     }
 
     protected void markDrawerShown() {
-        SharedPreferences sp = getPrefs();
-        sp.edit().putBoolean(PREF_SHOW_DRAWER, false).apply();
+        NavDrawerFirstRun.markDrawerShown(getContext());
+    }
+
+    /**
+     * Launch the given entry once the drawer is closed. Only one launch can be pending,
+     * so a pending launch of a previously clicked entry is replaced.
+     */
+    private void scheduleLaunch(NavDrawerEntry entry, long clickTime) {
+        mHandler.removeCallbacks(mLaunchRunnable);
+        mPendingLaunchEntry = entry;
+        mPendingLaunchClickTime = clickTime;
+        if (!mLaunchOnDrawerClosed) {
+            mHandler.postDelayed(mLaunchRunnable, NAVDRAWER_LAUNCH_DELAY);
+        } else if (mNavdrawer != null && isDrawerVisible(mNavdrawer)) {
+            // launched by onDrawerClosed(), the timeout is used if the drawer does not close
+            mHandler.postDelayed(mLaunchRunnable, NAVDRAWER_LAUNCH_TIMEOUT);
+        } else {
+            launchPendingEntry();
+        }
+    }
+
+    private void launchPendingEntry() {
+        NavDrawerEntry entry = mPendingLaunchEntry;
+        if (entry != null) {
+            mPendingLaunchEntry = null;
+            dispatchEntrySelected(entry, mPendingLaunchClickTime);
+        }
+    }
+
+    /**
+     * Cancel the launch of a clicked entry that is waiting for the drawer to close.
+     * The navigation listener is not notified about the entry.
+     *
+     * @return true if a launch has been cancelled
+     */
+    public boolean cancelPendingLaunch() {
+        mHandler.removeCallbacks(mLaunchRunnable);
+        if (mPendingLaunchEntry != null) {
+            mPendingLaunchEntry = null;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check whether delayed entries are launched as soon as the drawer is closed.
+     *
+     * @return true if launches wait for the drawer to close
+     */
+    public boolean isLaunchOnDrawerClosed() {
+        return mLaunchOnDrawerClosed;
+    }
+
+    /**
+     * Launch clicked entries as soon as the close animation of the drawer has ended instead of
+     * after a fixed delay. Only applies to entries with {@link NavDrawerEntry#launchDelayed()}.
+     *
+     * @param launchOnDrawerClosed true if launches should wait for the drawer to close
+     */
+    public void setLaunchOnDrawerClosed(boolean launchOnDrawerClosed) {
+        mLaunchOnDrawerClosed = launchOnDrawerClosed;
+    }
+
+    private void dispatchEntrySelected(NavDrawerEntry entry, long clickTime) {
+        notifyListeners(entry);
+        if (mMetrics != null && clickTime != 0) {
+            mMetrics.onEntryLaunched(entry, System.nanoTime() - clickTime);
+        }
     }
 
     protected void notifyListeners(NavDrawerEntry entry) {
@@ -372,4 +1658,200 @@ public class NavDrawerLayout extends DrawerLayout {
         }
         return null;
     }
+
+    /**
+     * Scroll position and selected entry of the drawer. The open state is saved by the {@link DrawerLayout}.
+     * <p/>
+     * The super state is written and read here instead of by {@link BaseSavedState}, which reads it
+     * with the boot class loader that cannot load the state of the {@link DrawerLayout}.
+     */
+    static class SavedState implements Parcelable {
+
+        private final Parcelable mSuperState;
+        boolean virtualized;
+        boolean hasScroll;
+        int scrollY;
+        int listPosition;
+        int listTop;
+        boolean hasSelectedId;
+        int selectedId;
+
+        SavedState(Parcelable superState) {
+            mSuperState = superState != BaseSavedState.EMPTY_STATE ? superState : null;
+        }
+
+        SavedState(Parcel in, ClassLoader loader) {
+            mSuperState = in.readParcelable(loader);
+            virtualized = in.readInt() != 0;
+            hasScroll = in.readInt() != 0;
+            scrollY = in.readInt();
+            listPosition = in.readInt();
+            listTop = in.readInt();
+            hasSelectedId = in.readInt() != 0;
+            selectedId = in.readInt();
+        }
+
+        Parcelable getSuperState() {
+            return mSuperState != null ? mSuperState : BaseSavedState.EMPTY_STATE;
+        }
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            dest.writeParcelable(mSuperState, flags);
+            dest.writeInt(virtualized ? 1 : 0);
+            dest.writeInt(hasScroll ? 1 : 0);
+            dest.writeInt(scrollY);
+            dest.writeInt(listPosition);
+            dest.writeInt(listTop);
+            dest.writeInt(hasSelectedId ? 1 : 0);
+            dest.writeInt(selectedId);
+        }
+
+        public static final Creator<SavedState> CREATOR = new ClassLoaderCreator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel source, ClassLoader loader) {
+                return new SavedState(source, loader);
+            }
+
+            @Override
+            public SavedState createFromParcel(Parcel source) {
+                return new SavedState(source, null);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
+    /**
+     * Fades a content view and keeps it on a hardware layer while the fade is running.
+     * Instances are kept as view tag and reused for every fade of the view.
+     */
+    private class ContentFade extends AnimatorListenerAdapter {
+
+        private final View mView;
+        private final List<Runnable> mEndActions = new ArrayList<Runnable>(1);
+        // run when the fade ends or is cancelled
+        private final List<Runnable> mFinishActions = new ArrayList<Runnable>(1);
+        private boolean mRunning;
+        private boolean mCancelled;
+        private boolean mFadeIn;
+        private boolean mTracked;
+        private boolean mLayerSet;
+        private long mStartNanos;
+
+        ContentFade(View view) {
+            mView = view;
+        }
+
+        boolean isRunning(boolean fadeIn) {
+            return mRunning && mFadeIn == fadeIn;
+        }
+
+        void start(boolean fadeIn, boolean tracked, Runnable endAction) {
+            if (isRunning(fadeIn)) {
+                // continue the running fade
+                if (endAction != null) {
+                    mEndActions.add(endAction);
+                }
+                return;
+            }
+            cancel();
+            float alpha = fadeIn ? 1 : 0;
+            if (mView.getAlpha() == alpha) {
+                // nothing to fade
+                if (endAction != null) {
+                    endAction.run();
+                }
+                return;
+            }
+            mRunning = true;
+            mCancelled = false;
+            mFadeIn = fadeIn;
+            mTracked = tracked;
+            mStartNanos = tracked && mMetrics != null ? System.nanoTime() : 0;
+            if (endAction != null) {
+                mEndActions.add(endAction);
+            }
+            // the view is only composited while fading instead of being redrawn every frame
+            mLayerSet = mView.getLayerType() == LAYER_TYPE_NONE && mView.isHardwareAccelerated();
+            if (mLayerSet) {
+                mView.setLayerType(LAYER_TYPE_HARDWARE, null);
+            }
+            mView.animate()
+                    .alpha(alpha)
+                    .setDuration(fadeIn ? MAIN_CONTENT_FADEIN_DURATION : MAIN_CONTENT_FADEOUT_DURATION)
+                    .setListener(this);
+        }
+
+        void cancel() {
+            if (mRunning) {
+                // calls onAnimationCancel() and onAnimationEnd() if the animation has already started
+                mView.animate().cancel();
+                if (mRunning) {
+                    mCancelled = true;
+                    finish();
+                }
+            }
+        }
+
+        @Override
+        public void onAnimationCancel(Animator animation) {
+            mCancelled = true;
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            // ignore other animations of the view's animator that end after this fade
+            if (mRunning) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            mRunning = false;
+            // the animator of the view is shared, do not get notified about other animations
+            mView.animate().setListener(null);
+            if (mLayerSet) {
+                mLayerSet = false;
+                mView.setLayerType(LAYER_TYPE_NONE, null);
+            }
+            if (mTracked && mStartNanos != 0 && mMetrics != null) {
+                mMetrics.onContentFaded(mFadeIn, System.nanoTime() - mStartNanos);
+            }
+            mStartNanos = 0;
+            if (!mFinishActions.isEmpty()) {
+                Runnable[] finishActions = mFinishActions.toArray(new Runnable[mFinishActions.size()]);
+                mFinishActions.clear();
+                for (Runnable finishAction : finishActions) {
+                    if (mCancelled) {
+                        // cancelled by a new fade that is not started yet
+                        mView.post(finishAction);
+                    } else {
+                        finishAction.run();
+                    }
+                }
+            }
+            if (mEndActions.isEmpty()) {
+                return;
+            }
+            if (mCancelled) {
+                mEndActions.clear();
+                return;
+            }
+            // end actions might start the next fade
+            Runnable[] endActions = mEndActions.toArray(new Runnable[mEndActions.size()]);
+            mEndActions.clear();
+            for (Runnable endAction : endActions) {
+                endAction.run();
+            }
+        }
+    }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer.widget;
+
+import android.support.annotation.LayoutRes;
+
+import com.oprisnik.navdrawer.entry.NavDrawerEntry;
+
+/**
+ * Receives timings and counts from a {@link NavDrawerLayout}, see
+ * {@link NavDrawerLayout#setMetrics(NavDrawerMetrics)}.
+ * All methods are called on the main thread. Durations are in nanoseconds.
+ * If no metrics are set, nothing is measured.
+ */
+public interface NavDrawerMetrics {
+
+    /**
+     * Called after the row of an entry has been inflated.
+     * Rows that are inflated in the background are reported once they are attached.
+     *
+     * @param layoutResId   the layout resource ID of the row
+     * @param durationNanos the inflation time
+     */
+    public void onEntryInflated(@LayoutRes int layoutResId, long durationNanos);
+
+    /**
+     * Called after the navigation drawer entries have been created from scratch.
+     * In async inflation mode, only the time spent on the main thread is included.
+     *
+     * @param entryCount    the number of entries
+     * @param durationNanos the time spent in {@link NavDrawerLayout#createNavDrawerItems()}
+     */
+    public void onEntriesCreated(int entryCount, long durationNanos);
+
+    /**
+     * Called whenever a row is (re-)formatted, i.e. bound or (de-)selected.
+     *
+     * @param entry the entry
+     */
+    public void onEntryFormatted(NavDrawerEntry entry);
+
+    /**
+     * Called after the navigation listener has been notified about a clicked entry.
+     *
+     * @param entry         the clicked entry
+     * @param durationNanos the time from the click until the listener returned, including the launch delay
+     */
+    public void onEntryLaunched(NavDrawerEntry entry, long durationNanos);
+
+    /**
+     * Called when a fade of the main content is done or has been cancelled.
+     *
+     * @param fadeIn        true if the content was faded in, false if it was faded out
+     * @param durationNanos the time from the start of the fade until it ended
+     */
+    public void onContentFaded(boolean fadeIn, long durationNanos);
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer.widget;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.content.res.Configuration;
+import android.support.annotation.LayoutRes;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process-wide pool of navigation drawer rows that can be shared between activities.
+ * Rows are pooled per theme and entry layout resource ID, and are only reused in activities with the
+ * configuration they have been inflated with. Pooled rows do not reference the activity they have been
+ * created in, they are moved to the new activity when they are acquired.
+ * The pool is cleared when the system is low on memory.
+ * Must only be used from the main thread.
+ */
+public class NavDrawerViewPool implements ComponentCallbacks2 {
+
+    public static final int DEFAULT_MAX_VIEWS_PER_TYPE = 32;
+
+    private static NavDrawerViewPool sInstance;
+
+    private final Context mApplicationContext;
+
+    // theme resource ID -> layout resource ID -> views
+    private final SparseArray<SparseArray<List<View>>> mViews = new SparseArray<SparseArray<List<View>>>();
+
+    private int mMaxViewsPerType = DEFAULT_MAX_VIEWS_PER_TYPE;
+
+    private NavDrawerViewPool(Context context) {
+        mApplicationContext = context.getApplicationContext();
+        mApplicationContext.registerComponentCallbacks(this);
+    }
+
+    public static NavDrawerViewPool getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NavDrawerViewPool(context);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Create a context for views that can be released to this pool.
+     * Views have to be inflated with their own context, since the context is moved to another
+     * activity when the view is reused.
+     *
+     * @param context the activity context
+     * @return the context to inflate the view with
+     */
+    public Context createViewContext(Context context) {
+        return new PooledViewContext(context);
+    }
+
+    /**
+     * Get a pooled view.
+     *
+     * @param context     the activity context the view will be used in
+     * @param themeResId  the theme resource ID of the activity
+     * @param layoutResId the layout resource ID of the view
+     * @return the view or null if the pool does not contain a matching view
+     */
+    public View acquire(Context context, int themeResId, @LayoutRes int layoutResId) {
+        SparseArray<List<View>> themeViews = mViews.get(themeResId);
+        if (themeViews == null) {
+            return null;
+        }
+        List<View> views = themeViews.get(layoutResId);
+        if (views == null) {
+            return null;
+        }
+        Configuration configuration = context.getResources().getConfiguration();
+        while (!views.isEmpty()) {
+            View view = views.remove(views.size() - 1);
+            PooledViewContext viewContext = (PooledViewContext) view.getContext();
+            // e.g. dimensions and strings of another orientation or locale
+            if (viewContext.mConfiguration.diff(configuration) == 0) {
+                viewContext.setBaseContext(context);
+                return view;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return a view to the pool. The view must have been inflated with a context created by
+     * {@link #createViewContext(Context)} and must not have a parent.
+     *
+     * @param view        the view to release
+     * @param themeResId  the theme resource ID of the activity the view has been used in
+     * @param layoutResId the layout resource ID of the view
+     * @return true if the view has been added to the pool
+     */
+    public boolean release(View view, int themeResId, @LayoutRes int layoutResId) {
+        if (!(view.getContext() instanceof PooledViewContext) || view.getParent() != null) {
+            return false;
+        }
+        SparseArray<List<View>> themeViews = mViews.get(themeResId);
+        if (themeViews == null) {
+            themeViews = new SparseArray<List<View>>();
+            mViews.put(themeResId, themeViews);
+        }
+        List<View> views = themeViews.get(layoutResId);
+        if (views == null) {
+            views = new ArrayList<View>();
+            themeViews.put(layoutResId, views);
+        }
+        if (views.size() >= mMaxViewsPerType) {
+            return false;
+        }
+        // do not leak the activity
+        ((PooledViewContext) view.getContext()).setBaseContext(mApplicationContext);
+        views.add(view);
+        return true;
+    }
+
+    public int getMaxViewsPerType() {
+        return mMaxViewsPerType;
+    }
+
+    public void setMaxViewsPerType(int maxViewsPerType) {
+        mMaxViewsPerType = maxViewsPerType;
+    }
+
+    /**
+     * Remove all views from the pool.
+     */
+    public void clear() {
+        mViews.clear();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        // keep the rows when the UI is hidden, the next activity might need them
+        if (level >= TRIM_MEMORY_MODERATE) {
+            clear();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        // pooled views have been inflated for the old configuration, views that are released
+        // afterwards are skipped by acquire(...)
+        clear();
+    }
+
+    /**
+     * Context of a pooled view. Inflates with a layout inflater bound to this context
+     * so that the view does not reference the activity directly.
+     */
+    private static class PooledViewContext extends MutableContextWrapper {
+
+        // the configuration the view has been inflated with
+        final Configuration mConfiguration;
+
+        private LayoutInflater mInflater;
+
+        PooledViewContext(Context base) {
+            super(base);
+            mConfiguration = new Configuration(base.getResources().getConfiguration());
+        }
+
+        @Override
+        public void setBaseContext(Context base) {
+            super.setBaseContext(base);
+            // the inflater references the previous context
+            mInflater = null;
+        }
+
+        @Override
+        public Object getSystemService(String name) {
+            if (LAYOUT_INFLATER_SERVICE.equals(name)) {
+                if (mInflater == null) {
+                    mInflater = LayoutInflater.from(getBaseContext()).cloneInContext(this);
+                }
+                return mInflater;
+            }
+            return super.getSystemService(name);
+        }
+    }
+}
@@ -16,20 +16,32 @@
 
 package google.samples.apps.iosched.ui.widget;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.ColorMatrix;
 import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Matrix;
+import android.graphics.Outline;
 import android.graphics.Paint;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.graphics.drawable.ShapeDrawable;
+import android.graphics.drawable.shapes.OvalShape;
+import android.graphics.drawable.shapes.Shape;
+import android.os.Build;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewOutlineProvider;
 import android.widget.ImageView;
 
 import com.oprisnik.navdrawer.R;
@@ -38,13 +50,24 @@ import com.oprisnik.navdrawer.R;
  * An {@link android.widget.ImageView} that draws its contents inside a mask and draws a border
  * drawable on top. This is useful for applying a beveled look to image contents, but is also
  * flexible enough for use with other desired aesthetics.
+ * <p/>
+ * By default, the masked contents are rendered into an offscreen bitmap cache. With
+ * hardwareMasking enabled, the contents are clipped to the outline of the mask drawable (API 21+)
+ * or drawn through a {@link BitmapShader} instead, so that no cache bitmap is needed. Masks that
+ * cannot be used as outline or shader shape are drawn with a transient layer, so use
+ * maskShape="oval" instead of an oval &lt;shape&gt; drawable for circular masks.
  */
 public class BezelImageView extends ImageView {
+
+    // values of the maskShape attribute
+    private static final int MASK_SHAPE_NONE = 0;
+    private static final int MASK_SHAPE_OVAL = 1;
+
     private Paint mBlackPaint;
     private Paint mMaskedPaint;
 
-    private Rect mBounds;
-    private RectF mBoundsF;
+    private final Rect mBounds = new Rect();
+    private final RectF mBoundsF = new RectF();
 
     private Drawable mBorderDrawable;
     private Drawable mMaskDrawable;
@@ -53,10 +76,20 @@ public class BezelImageView extends ImageView {
     private boolean mDesaturateOnPress = false;
 
     private boolean mCacheValid = false;
+    // may be larger than the view, only the top left part of the size of the view is used
     private Bitmap mCacheBitmap;
+    private final Canvas mCacheCanvas = new Canvas();
+    private final Rect mCacheSrcRect = new Rect();
     private int mCachedWidth;
     private int mCachedHeight;
 
+    private boolean mHardwareMasking = false;
+    private Paint mShaderPaint;
+    private Paint mDesaturatePaint;
+    private BitmapShader mShader;
+    private Bitmap mShaderBitmap;
+    private final Matrix mShaderMatrix = new Matrix();
+
     public BezelImageView(Context context) {
         this(context, null);
     }
@@ -72,7 +105,12 @@ public class BezelImageView extends ImageView {
         final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.BezelImageView,
                 defStyle, 0);
 
-        mMaskDrawable = a.getDrawable(R.styleable.BezelImageView_maskDrawable);
+        if (a.getInt(R.styleable.BezelImageView_maskShape, MASK_SHAPE_NONE) == MASK_SHAPE_OVAL) {
+            // an oval <shape> drawable is a GradientDrawable, which cannot be drawn with the shader
+            mMaskDrawable = new ShapeDrawable(new OvalShape());
+        } else {
+            mMaskDrawable = a.getDrawable(R.styleable.BezelImageView_maskDrawable);
+        }
         if (mMaskDrawable != null) {
             mMaskDrawable.setCallback(this);
         }
@@ -85,6 +123,9 @@ public class BezelImageView extends ImageView {
         mDesaturateOnPress = a.getBoolean(R.styleable.BezelImageView_desaturateOnPress,
                 mDesaturateOnPress);
 
+        mHardwareMasking = a.getBoolean(R.styleable.BezelImageView_hardwareMasking,
+                mHardwareMasking);
+
         a.recycle();
 
         // Other initialization
@@ -94,22 +135,94 @@ public class BezelImageView extends ImageView {
         mMaskedPaint = new Paint();
         mMaskedPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
 
-        // Always want a cache allocated.
-        mCacheBitmap = Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
-
         if (mDesaturateOnPress) {
             // Create a desaturate color filter for pressed state.
             ColorMatrix cm = new ColorMatrix();
             cm.setSaturation(0);
             mDesaturateColorFilter = new ColorMatrixColorFilter(cm);
         }
+
+        setHardwareMaskingInternal(mHardwareMasking);
+    }
+
+    public boolean isHardwareMasking() {
+        return mHardwareMasking;
+    }
+
+    /**
+     * Enable or disable hardware masking. If enabled, the contents are clipped to the outline of
+     * the mask drawable (API 21+) or drawn with a bitmap shader instead of an offscreen cache.
+     * Other masks, e.g. mask drawables other than a {@link ShapeDrawable} below API 21, are drawn
+     * with a transient layer.
+     *
+     * @param hardwareMasking true to enable hardware masking
+     */
+    public void setHardwareMasking(boolean hardwareMasking) {
+        if (mHardwareMasking != hardwareMasking) {
+            setHardwareMaskingInternal(hardwareMasking);
+            invalidate();
+        }
+    }
+
+    private void setHardwareMaskingInternal(boolean hardwareMasking) {
+        mHardwareMasking = hardwareMasking;
+        if (hardwareMasking) {
+            // drop the bitmap cache
+            if (mCacheBitmap != null) {
+                mCacheBitmap.recycle();
+                mCacheBitmap = null;
+                mCacheCanvas.setBitmap(null);
+            }
+            if (mShaderPaint == null) {
+                mShaderPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+                mDesaturatePaint = new Paint();
+                mDesaturatePaint.setColorFilter(mDesaturateColorFilter);
+            }
+        } else {
+            mShader = null;
+            mShaderBitmap = null;
+            if (mCacheBitmap == null) {
+                // Always want a cache allocated.
+                mCacheBitmap = Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+                mCacheCanvas.setBitmap(mCacheBitmap);
+            }
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            updateOutlineClipping();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void updateOutlineClipping() {
+        boolean canClip = false;
+        if (mHardwareMasking && mMaskDrawable != null && !mBounds.isEmpty()) {
+            // only called when the mask or its bounds change
+            Outline outline = new Outline();
+            mMaskDrawable.getOutline(outline);
+            canClip = outline.canClip();
+        }
+        if (canClip) {
+            setOutlineProvider(MaskOutlineProvider.INSTANCE);
+            setClipToOutline(true);
+            invalidateOutline();
+        } else if (getOutlineProvider() == MaskOutlineProvider.INSTANCE) {
+            setOutlineProvider(ViewOutlineProvider.BACKGROUND);
+            setClipToOutline(false);
+        }
+    }
+
+    /**
+     * @return true if the contents are clipped to the outline of the mask drawable
+     */
+    private boolean isClippedToOutline() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && getClipToOutline();
     }
 
     @Override
     protected boolean setFrame(int l, int t, int r, int b) {
         final boolean changed = super.setFrame(l, t, r, b);
-        mBounds = new Rect(0, 0, r - l, b - t);
-        mBoundsF = new RectF(mBounds);
+        mBounds.set(0, 0, r - l, b - t);
+        mBoundsF.set(mBounds);
 
         if (mBorderDrawable != null) {
             mBorderDrawable.setBounds(mBounds);
@@ -120,6 +233,9 @@ public class BezelImageView extends ImageView {
 
         if (changed) {
             mCacheValid = false;
+            if (mHardwareMasking && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                updateOutlineClipping();
+            }
         }
 
         return changed;
@@ -127,10 +243,6 @@ public class BezelImageView extends ImageView {
 
     @Override
     protected void onDraw(Canvas canvas) {
-        if (mBounds == null) {
-            return;
-        }
-
         int width = mBounds.width();
         int height = mBounds.height();
 
@@ -138,21 +250,32 @@ public class BezelImageView extends ImageView {
             return;
         }
 
+        if (mHardwareMasking) {
+            drawMasked(canvas);
+            return;
+        }
+
         if (!mCacheValid || width != mCachedWidth || height != mCachedHeight) {
             // Need to redraw the cache
-            if (width == mCachedWidth && height == mCachedHeight) {
-                // Have a correct-sized bitmap cache already allocated. Just erase it.
+            if (mCacheBitmap != null && width <= mCacheBitmap.getWidth() && height <= mCacheBitmap.getHeight()) {
+                // Have a large enough bitmap cache already allocated. Just erase it.
                 mCacheBitmap.eraseColor(0);
             } else {
-                // Allocate a new bitmap with the correct dimensions.
-                mCacheBitmap.recycle();
+                // Allocate a new bitmap that fits the new and the old dimensions.
+                int bitmapWidth = mCacheBitmap != null ? Math.max(width, mCacheBitmap.getWidth()) : width;
+                int bitmapHeight = mCacheBitmap != null ? Math.max(height, mCacheBitmap.getHeight()) : height;
+                if (mCacheBitmap != null) {
+                    mCacheBitmap.recycle();
+                }
                 //noinspection AndroidLintDrawAllocation
-                mCacheBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-                mCachedWidth = width;
-                mCachedHeight = height;
+                mCacheBitmap = Bitmap.createBitmap(bitmapWidth, bitmapHeight, Bitmap.Config.ARGB_8888);
+                mCacheCanvas.setBitmap(mCacheBitmap);
             }
+            mCachedWidth = width;
+            mCachedHeight = height;
+            mCacheSrcRect.set(0, 0, width, height);
 
-            Canvas cacheCanvas = new Canvas(mCacheBitmap);
+            Canvas cacheCanvas = mCacheCanvas;
             if (mMaskDrawable != null) {
                 int sc = cacheCanvas.save();
                 mMaskDrawable.draw(cacheCanvas);
@@ -180,7 +303,86 @@ public class BezelImageView extends ImageView {
         }
 
         // Draw from cache
-        canvas.drawBitmap(mCacheBitmap, mBounds.left, mBounds.top, null);
+        canvas.drawBitmap(mCacheBitmap, mCacheSrcRect, mBounds, null);
+    }
+
+    /**
+     * Draw the contents without an offscreen cache.
+     */
+    private void drawMasked(Canvas canvas) {
+        boolean desaturate = mDesaturateOnPress && isPressed();
+        if (mMaskDrawable == null || isClippedToOutline()) {
+            // no mask or clipped by the render node outline
+            int sc = desaturate
+                    ? canvas.saveLayer(mBoundsF, mDesaturatePaint, Canvas.ALL_SAVE_FLAG)
+                    : canvas.save();
+            super.onDraw(canvas);
+            canvas.restoreToCount(sc);
+        } else if (getMaskShape() != null && updateShader()) {
+            mShaderPaint.setColorFilter(desaturate ? mDesaturateColorFilter : null);
+            getMaskShape().draw(canvas, mShaderPaint);
+        } else {
+            // the mask is not a shape or the image is not a bitmap -> mask with a transient layer
+            int sc = canvas.save();
+            mMaskDrawable.draw(canvas);
+            mMaskedPaint.setColorFilter(desaturate ? mDesaturateColorFilter : null);
+            canvas.saveLayer(mBoundsF, mMaskedPaint,
+                    Canvas.HAS_ALPHA_LAYER_SAVE_FLAG | Canvas.FULL_COLOR_LAYER_SAVE_FLAG);
+            super.onDraw(canvas);
+            canvas.restoreToCount(sc);
+        }
+
+        if (mBorderDrawable != null) {
+            mBorderDrawable.draw(canvas);
+        }
+    }
+
+    /**
+     * Check whether the contents are drawn with the bitmap shader instead of a layer if the image is a bitmap,
+     * i.e. hardware masking is enabled, the contents are not clipped to the outline and the mask is a shape.
+     *
+     * @return true if the shader can be used
+     */
+    boolean isShaderMasking() {
+        return mHardwareMasking && mMaskDrawable != null && !isClippedToOutline() && getMaskShape() != null;
+    }
+
+    /**
+     * @return the shape of the mask drawable or null if the mask is not a {@link ShapeDrawable}
+     */
+    private Shape getMaskShape() {
+        return mMaskDrawable instanceof ShapeDrawable ? ((ShapeDrawable) mMaskDrawable).getShape() : null;
+    }
+
+    /**
+     * Update the bitmap shader for the current image.
+     *
+     * @return false if the image is not a bitmap
+     */
+    private boolean updateShader() {
+        Drawable drawable = getDrawable();
+        if (!(drawable instanceof BitmapDrawable)) {
+            return false;
+        }
+        Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+        if (bitmap == null) {
+            return false;
+        }
+        if (bitmap != mShaderBitmap) {
+            // only allocated if the image changes
+            mShaderBitmap = bitmap;
+            mShader = new BitmapShader(bitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+            mShaderPaint.setShader(mShader);
+        }
+        // bitmap -> drawable bounds -> image matrix -> padding
+        Rect drawableBounds = drawable.getBounds();
+        mShaderMatrix.set(getImageMatrix());
+        mShaderMatrix.preTranslate(drawableBounds.left, drawableBounds.top);
+        mShaderMatrix.preScale(drawableBounds.width() / (float) bitmap.getWidth(),
+                drawableBounds.height() / (float) bitmap.getHeight());
+        mShaderMatrix.postTranslate(getPaddingLeft(), getPaddingTop());
+        mShader.setLocalMatrix(mShaderMatrix);
+        return true;
     }
 
     @Override
@@ -210,4 +412,18 @@ public class BezelImageView extends ImageView {
     protected boolean verifyDrawable(Drawable who) {
         return who == mBorderDrawable || who == mMaskDrawable || super.verifyDrawable(who);
     }
-}
\ No newline at end of file
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static class MaskOutlineProvider extends ViewOutlineProvider {
+
+        static final MaskOutlineProvider INSTANCE = new MaskOutlineProvider();
+
+        @Override
+        public void getOutline(View view, Outline outline) {
+            BezelImageView imageView = (BezelImageView) view;
+            if (imageView.mMaskDrawable != null) {
+                imageView.mMaskDrawable.getOutline(outline);
+            }
+        }
+    }
+}
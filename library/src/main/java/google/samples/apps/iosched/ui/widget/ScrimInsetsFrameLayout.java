@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package google.samples.apps.iosched.ui.widget;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.widget.FrameLayout;
+
+
+/**
+ * A layout that draws something in the insets passed to {@link #fitSystemWindows(android.graphics.Rect)}, i.e. the area above UI chrome
+ * (status and navigation bars, overlay action bars).
+ */
+public class ScrimInsetsFrameLayout extends FrameLayout {
+    private ScrimInsetsHelper mScrimInsets;
+    private OnInsetsCallback mOnInsetsCallback;
+
+    public ScrimInsetsFrameLayout(Context context) {
+        super(context);
+        init(context, null, 0);
+    }
+
+    public ScrimInsetsFrameLayout(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init(context, attrs, 0);
+    }
+
+    public ScrimInsetsFrameLayout(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        init(context, attrs, defStyle);
+    }
+
+    private void init(Context context, AttributeSet attrs, int defStyle) {
+        mScrimInsets = new ScrimInsetsHelper(this, context, attrs, defStyle);
+    }
+
+    @Override
+    protected boolean fitSystemWindows(Rect insets) {
+        mScrimInsets.fitSystemWindows(insets);
+        if (mOnInsetsCallback != null) {
+            mOnInsetsCallback.onInsetsChanged(insets);
+        }
+        return true; // consume insets
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mScrimInsets.onSizeChanged();
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        super.draw(canvas);
+        mScrimInsets.draw(canvas);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mScrimInsets.onAttachedToWindow();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mScrimInsets.onDetachedFromWindow();
+    }
+
+    /**
+     * Allows the calling container to specify a callback for custom processing when insets change (i.e. when
+     * {@link #fitSystemWindows(android.graphics.Rect)} is called. This is useful for setting padding on UI elements based on
+     * UI chrome insets (e.g. a Google Map or a ListView). When using with ListView or GridView, remember to set
+     * clipToPadding to false.
+     */
+    public void setOnInsetsCallback(OnInsetsCallback onInsetsCallback) {
+        mOnInsetsCallback = onInsetsCallback;
+    }
+
+    public static interface OnInsetsCallback {
+        public void onInsetsChanged(Rect insets);
+    }
+}
\ No newline at end of file
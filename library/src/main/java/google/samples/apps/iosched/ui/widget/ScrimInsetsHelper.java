@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package google.samples.apps.iosched.ui.widget;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.v4.view.ViewCompat;
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.oprisnik.navdrawer.R;
+
+/**
+ * Draws the inset foreground of {@link ScrimInsetsScrollView} and {@link ScrimInsetsFrameLayout}
+ * into the insets passed to fitSystemWindows(Rect).
+ */
+class ScrimInsetsHelper {
+
+    private final View mView;
+    private Drawable mInsetForeground;
+
+    private final Rect mInsets = new Rect();
+    private boolean mHasInsets = false;
+
+    // bounds of the edges with a non-empty inset, valid until the insets or the size change
+    private final Rect[] mEdges = {new Rect(), new Rect(), new Rect(), new Rect()};
+    private int mEdgeCount = 0;
+    private boolean mEdgesValid = false;
+
+    ScrimInsetsHelper(View view, Context context, AttributeSet attrs, int defStyle) {
+        mView = view;
+        final TypedArray a = context.obtainStyledAttributes(attrs,
+                R.styleable.ScrimInsetsView, defStyle, 0);
+        if (a == null) {
+            return;
+        }
+        mInsetForeground = a.getDrawable(R.styleable.ScrimInsetsView_insetForeground);
+        a.recycle();
+
+        view.setWillNotDraw(true);
+    }
+
+    void fitSystemWindows(Rect insets) {
+        if (!mHasInsets || !mInsets.equals(insets)) {
+            mInsets.set(insets);
+            mHasInsets = true;
+            mEdgesValid = false;
+            ViewCompat.postInvalidateOnAnimation(mView);
+        }
+        mView.setWillNotDraw(mInsetForeground == null);
+    }
+
+    void onSizeChanged() {
+        mEdgesValid = false;
+    }
+
+    /**
+     * Draw the inset foreground. Has to be called after the view has been drawn.
+     */
+    void draw(Canvas canvas) {
+        if (mHasInsets && mInsetForeground != null) {
+            if (!mEdgesValid) {
+                updateEdges(mView.getWidth(), mView.getHeight());
+            }
+            if (mEdgeCount == 0) {
+                return;
+            }
+            int sc = canvas.save();
+            canvas.translate(mView.getScrollX(), mView.getScrollY());
+            for (int i = 0; i < mEdgeCount; i++) {
+                mInsetForeground.setBounds(mEdges[i]);
+                mInsetForeground.draw(canvas);
+            }
+            canvas.restoreToCount(sc);
+        }
+    }
+
+    /**
+     * Compute the bounds of the top, bottom, left and right edges, skipping empty ones.
+     */
+    private void updateEdges(int width, int height) {
+        mEdgeCount = 0;
+        // Top
+        addEdge(0, 0, width, mInsets.top);
+        // Bottom
+        addEdge(0, height - mInsets.bottom, width, height);
+        // Left
+        addEdge(0, mInsets.top, mInsets.left, height - mInsets.bottom);
+        // Right
+        addEdge(width - mInsets.right, mInsets.top, width, height - mInsets.bottom);
+        mEdgesValid = true;
+    }
+
+    private void addEdge(int left, int top, int right, int bottom) {
+        if (left < right && top < bottom) {
+            mEdges[mEdgeCount++].set(left, top, right, bottom);
+        }
+    }
+
+    void onAttachedToWindow() {
+        if (mInsetForeground != null) {
+            mInsetForeground.setCallback(mView);
+        }
+    }
+
+    void onDetachedFromWindow() {
+        if (mInsetForeground != null) {
+            mInsetForeground.setCallback(null);
+        }
+    }
+}
@@ -17,26 +17,18 @@
 package google.samples.apps.iosched.ui.widget;
 
 import android.content.Context;
-import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Rect;
-import android.graphics.drawable.Drawable;
-import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.widget.ScrollView;
 
-import com.oprisnik.navdrawer.R;
-
 
 /**
  * A layout that draws something in the insets passed to {@link #fitSystemWindows(android.graphics.Rect)}, i.e. the area above UI chrome
  * (status and navigation bars, overlay action bars).
  */
 public class ScrimInsetsScrollView extends ScrollView {
-    private Drawable mInsetForeground;
-
-    private Rect mInsets;
-    private Rect mTempRect = new Rect();
+    private ScrimInsetsHelper mScrimInsets;
     private OnInsetsCallback mOnInsetsCallback;
 
     public ScrimInsetsScrollView(Context context) {
@@ -55,76 +47,40 @@ public class ScrimInsetsScrollView extends ScrollView {
     }
 
     private void init(Context context, AttributeSet attrs, int defStyle) {
-        final TypedArray a = context.obtainStyledAttributes(attrs,
-                R.styleable.ScrimInsetsView, defStyle, 0);
-        if (a == null) {
-            return;
-        }
-        mInsetForeground = a.getDrawable(R.styleable.ScrimInsetsView_insetForeground);
-        a.recycle();
-
-        setWillNotDraw(true);
+        mScrimInsets = new ScrimInsetsHelper(this, context, attrs, defStyle);
     }
 
     @Override
     protected boolean fitSystemWindows(Rect insets) {
-        mInsets = new Rect(insets);
-        setWillNotDraw(mInsetForeground == null);
-        ViewCompat.postInvalidateOnAnimation(this);
+        mScrimInsets.fitSystemWindows(insets);
         if (mOnInsetsCallback != null) {
             mOnInsetsCallback.onInsetsChanged(insets);
         }
         return true; // consume insets
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mScrimInsets.onSizeChanged();
+    }
+
     @Override
     public void draw(Canvas canvas) {
         super.draw(canvas);
-
-        int width = getWidth();
-        int height = getHeight();
-        if (mInsets != null && mInsetForeground != null) {
-            int sc = canvas.save();
-            canvas.translate(getScrollX(), getScrollY());
-
-            // Top
-            mTempRect.set(0, 0, width, mInsets.top);
-            mInsetForeground.setBounds(mTempRect);
-            mInsetForeground.draw(canvas);
-
-            // Bottom
-            mTempRect.set(0, height - mInsets.bottom, width, height);
-            mInsetForeground.setBounds(mTempRect);
-            mInsetForeground.draw(canvas);
-
-            // Left
-            mTempRect.set(0, mInsets.top, mInsets.left, height - mInsets.bottom);
-            mInsetForeground.setBounds(mTempRect);
-            mInsetForeground.draw(canvas);
-
-            // Right
-            mTempRect.set(width - mInsets.right, mInsets.top, width, height - mInsets.bottom);
-            mInsetForeground.setBounds(mTempRect);
-            mInsetForeground.draw(canvas);
-
-            canvas.restoreToCount(sc);
-        }
+        mScrimInsets.draw(canvas);
     }
 
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        if (mInsetForeground != null) {
-            mInsetForeground.setCallback(this);
-        }
+        mScrimInsets.onAttachedToWindow();
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
-        if (mInsetForeground != null) {
-            mInsetForeground.setCallback(null);
-        }
+        mScrimInsets.onDetachedFromWindow();
     }
 
     /**
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.oprisnik.navdrawer.entry.NavDrawerEntry;
+import com.oprisnik.navdrawer.widget.NavDrawerLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ActivityController;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link NavDrawerFragmentActivity} swaps the content fragments of clicked entries
+ * once the content is faded out and restores the selected entry.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class NavDrawerFragmentActivityTest {
+
+    // longer than the launch delay and both fades
+    private static final long IDLE_MILLIS = 2000;
+
+    private static final NavDrawerEntry ENTRY1 = createEntry(1, true);
+    private static final NavDrawerEntry ENTRY2 = createEntry(2, true);
+    private static final NavDrawerEntry ENTRY_IMMEDIATE = new NavDrawerEntry.Builder()
+            .setId(3)
+            .setTitleResId(android.R.string.ok)
+            .setFadeOutContent(true)
+            .setLaunchDelayed(false)
+            .build();
+
+    private static final List<NavDrawerEntry> ENTRIES = Arrays.asList(ENTRY1, ENTRY2, ENTRY_IMMEDIATE);
+
+    // without explicit IDs
+    private static final List<NavDrawerEntry> GENERATED_ID_ENTRIES = Arrays.asList(
+            createEntry(0, true), createEntry(0, true));
+
+    @Test
+    public void showsInitialEntry() {
+        TestActivity activity = createActivity(TestActivity.class, null).get();
+        assertSame(ENTRY1, activity.getSelectedNavDrawerItem());
+        assertContent(activity, ENTRY1);
+    }
+
+    @Test
+    public void replacesContentOnceFadedOut() {
+        TestActivity activity = createActivity(TestActivity.class, null).get();
+        clickEntry(activity, ENTRY2);
+        assertTrue(activity.getDrawerLayout().isFadingOutContent());
+        assertContent(activity, ENTRY1);
+
+        ShadowLooper.idleMainLooper(IDLE_MILLIS);
+        assertSame(ENTRY2, activity.getSelectedNavDrawerItem());
+        assertContent(activity, ENTRY2);
+        assertFalse(activity.getDrawerLayout().isFadingOutContent());
+        assertEquals(1f, activity.findViewById(R.id.navdrawer_fragment_container).getAlpha(), 0f);
+    }
+
+    @Test
+    public void immediateLaunchWaitsForFadeOut() {
+        TestActivity activity = createActivity(TestActivity.class, null).get();
+        clickEntry(activity, ENTRY_IMMEDIATE);
+        // launched on click, but the old content is kept until it is faded out
+        assertSame(ENTRY_IMMEDIATE, activity.getSelectedNavDrawerItem());
+        assertContent(activity, ENTRY1);
+
+        ShadowLooper.idleMainLooper(IDLE_MILLIS);
+        assertContent(activity, ENTRY_IMMEDIATE);
+        assertEquals(1f, activity.findViewById(R.id.navdrawer_fragment_container).getAlpha(), 0f);
+    }
+
+    @Test
+    public void replacesContentIfFadeOutIsCancelled() {
+        TestActivity activity = createActivity(TestActivity.class, null).get();
+        clickEntry(activity, ENTRY_IMMEDIATE);
+        assertContent(activity, ENTRY1);
+        // cancels the running fade-out
+        activity.getDrawerLayout().fadeInContent();
+
+        ShadowLooper.idleMainLooper(IDLE_MILLIS);
+        assertContent(activity, ENTRY_IMMEDIATE);
+        assertEquals(1f, activity.findViewById(R.id.navdrawer_fragment_container).getAlpha(), 0f);
+    }
+
+    @Test
+    public void restoresEntryWithExplicitId() {
+        ActivityController<TestActivity> controller = createActivity(TestActivity.class, null);
+        clickEntry(controller.get(), ENTRY2);
+        ShadowLooper.idleMainLooper(IDLE_MILLIS);
+        Bundle state = new Bundle();
+        controller.saveInstanceState(state);
+
+        TestActivity restored = createActivity(TestActivity.class, state).get();
+        assertSame(ENTRY2, restored.getSelectedNavDrawerItem());
+        assertContent(restored, ENTRY2);
+    }
+
+    @Test
+    public void showsInitialEntryIfIdIsGenerated() {
+        ActivityController<GeneratedIdActivity> controller = createActivity(GeneratedIdActivity.class, null);
+        clickEntry(controller.get(), GENERATED_ID_ENTRIES.get(1));
+        ShadowLooper.idleMainLooper(IDLE_MILLIS);
+        assertContent(controller.get(), GENERATED_ID_ENTRIES.get(1));
+        Bundle state = new Bundle();
+        controller.saveInstanceState(state);
+
+        GeneratedIdActivity restored = createActivity(GeneratedIdActivity.class, state).get();
+        assertSame(GENERATED_ID_ENTRIES.get(0), restored.getSelectedNavDrawerItem());
+        assertContent(restored, GENERATED_ID_ENTRIES.get(0));
+    }
+
+    private static <T extends TestActivity> ActivityController<T> createActivity(Class<T> activityClass,
+                                                                                 Bundle state) {
+        ActivityController<T> controller = Robolectric.buildActivity(activityClass).create(state).start();
+        if (state != null) {
+            controller.restoreInstanceState(state);
+        }
+        controller.postCreate(state).resume().visible();
+        ShadowLooper.idleMainLooper(IDLE_MILLIS);
+        return controller;
+    }
+
+    private static void clickEntry(NavDrawerFragmentActivity activity, NavDrawerEntry entry) {
+        View view = activity.getDrawerLayout().getEntryView(entry.getId());
+        assertNotNull(view);
+        view.performClick();
+    }
+
+    private static void assertContent(NavDrawerFragmentActivity activity, NavDrawerEntry entry) {
+        Fragment fragment = activity.getContentFragment();
+        assertNotNull(fragment);
+        assertEquals(entry.getId(), fragment.getArguments().getInt(TestFragment.ARG_ENTRY_ID));
+    }
+
+    private static NavDrawerEntry createEntry(int id, boolean fadeOutContent) {
+        NavDrawerEntry.Builder builder = new NavDrawerEntry.Builder()
+                .setTitleResId(android.R.string.ok)
+                .setFadeOutContent(fadeOutContent);
+        if (id != 0) {
+            builder.setId(id);
+        }
+        return builder.build();
+    }
+
+    public static class TestActivity extends NavDrawerFragmentActivity {
+
+        @Override
+        protected void onCreate(Bundle savedInstanceState) {
+            setTheme(R.style.Theme_AppCompat_Light_NoActionBar);
+            super.onCreate(savedInstanceState);
+            TestDrawerLayout layout = new TestDrawerLayout(this);
+            FrameLayout container = new FrameLayout(this);
+            container.setId(R.id.navdrawer_fragment_container);
+            layout.addView(container, new NavDrawerLayout.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+            layout.finishInflate();
+            setContentView(layout);
+        }
+
+        @Override
+        public List<NavDrawerEntry> getNavDrawerItems() {
+            return ENTRIES;
+        }
+
+        @Override
+        protected NavDrawerEntry getInitialNavDrawerEntry() {
+            return getNavDrawerItems().get(0);
+        }
+
+        @Override
+        protected Fragment createFragment(NavDrawerEntry entry) {
+            return TestFragment.newInstance(entry.getId());
+        }
+
+        @Override
+        public void onHeaderClicked() {
+            // not used
+        }
+    }
+
+    public static class GeneratedIdActivity extends TestActivity {
+
+        @Override
+        public List<NavDrawerEntry> getNavDrawerItems() {
+            return GENERATED_ID_ENTRIES;
+        }
+    }
+
+    public static class TestFragment extends Fragment {
+
+        static final String ARG_ENTRY_ID = "entryId";
+
+        static TestFragment newInstance(int entryId) {
+            TestFragment fragment = new TestFragment();
+            Bundle args = new Bundle();
+            args.putInt(ARG_ENTRY_ID, entryId);
+            fragment.setArguments(args);
+            return fragment;
+        }
+
+        @Override
+        public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+            return new View(inflater.getContext());
+        }
+    }
+
+    private static class TestDrawerLayout extends NavDrawerLayout {
+
+        TestDrawerLayout(Context context) {
+            super(context);
+        }
+
+        void finishInflate() {
+            onFinishInflate();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer.widget;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.oprisnik.navdrawer.AllocationCounter;
+import com.oprisnik.navdrawer.BuildConfig;
+import com.oprisnik.navdrawer.NavDrawerModel;
+import com.oprisnik.navdrawer.NavDrawerModelProvider;
+import com.oprisnik.navdrawer.R;
+import com.oprisnik.navdrawer.entry.NavDrawerEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counts the allocations of the steady state of frequent drawer interactions and fails if they
+ * exceed a fixed budget. Each operation is warmed up first so that one-time allocations
+ * (e.g. cached theme colors) are not counted.
+ * <p/>
+ * Operations that do not change anything must not allocate at all. The other budgets are per operation
+ * and only leave room for the allocations of the framework code that is run by Robolectric.
+ * Operations must not allocate more for a larger drawer. The measured value is part of the failure message.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class NavDrawerLayoutAllocationTest {
+
+    // bytes per operation
+    private static final long SELECTION_BUDGET = 2 * 1024;
+    private static final long HEADER_UPDATE_BUDGET = 1024;
+    private static final long OPEN_CLOSE_BUDGET = 2 * 1024;
+    private static final long UNCHANGED_HEADER_UPDATE_BUDGET = 0;
+    private static final long UNCHANGED_UPDATE_BUDGET = 0;
+
+    private static final int SMALL_DRAWER = 10;
+    private static final int LARGE_DRAWER = 1000;
+
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int MEASURED_ITERATIONS = 100;
+
+    // longer than the longest settle animation of the drawer
+    private static final int SETTLE_FRAMES = 40;
+    private static final long FRAME_MILLIS = 16;
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    private interface Operation {
+        public void run(int iteration);
+    }
+
+    private Context mContext;
+    private AllocationCounter mCounter;
+
+    @Before
+    public void setUp() {
+        mContext = new ContextThemeWrapper(RuntimeEnvironment.application, R.style.Theme_AppCompat_Light);
+        mCounter = new AllocationCounter();
+    }
+
+    @Test
+    public void selectionStaysWithinBudget() {
+        long small = measureSelection(SMALL_DRAWER);
+        long large = measureSelection(LARGE_DRAWER);
+        assertWithinBudget("selection", small, SELECTION_BUDGET);
+        assertWithinBudget("selection", large, SELECTION_BUDGET);
+        assertIndependentOfSize("selection", small, large);
+    }
+
+    @Test
+    public void headerUpdateStaysWithinBudget() {
+        NavDrawerLayout layout = createLayout(new TestDataProvider(SMALL_DRAWER));
+        final NavDrawerHeader header = (NavDrawerHeader) layout.getHeader();
+        assertNotNull(header);
+        final Drawable[] icons = {new ColorDrawable(0xff000000), new ColorDrawable(0xffffffff)};
+
+        long bytes = measure(new Operation() {
+            @Override
+            public void run(int iteration) {
+                int i = iteration % 2;
+                header.setTitle(i == 0 ? "Jonathan Lee" : "Jane Doe");
+                header.setSubtitle(i == 0 ? "jonathan@example.com" : "jane@example.com");
+                header.setIcon(icons[i]);
+            }
+        }, null);
+        assertWithinBudget("header update", bytes, HEADER_UPDATE_BUDGET);
+    }
+
+    @Test
+    public void unchangedHeaderUpdateDoesNotAllocate() {
+        NavDrawerLayout layout = createLayout(new TestDataProvider(SMALL_DRAWER));
+        final NavDrawerHeader header = (NavDrawerHeader) layout.getHeader();
+        assertNotNull(header);
+        final Drawable icon = new ColorDrawable(0xff000000);
+        final Drawable background = new ColorDrawable(0xffffffff);
+
+        long bytes = measure(new Operation() {
+            @Override
+            public void run(int iteration) {
+                header.setInfo("Jonathan Lee", "jonathan@example.com", icon, background);
+            }
+        }, null);
+        assertWithinBudget("unchanged header update", bytes, UNCHANGED_HEADER_UPDATE_BUDGET);
+    }
+
+    @Test
+    public void drawerOpenCloseStaysWithinBudget() {
+        final NavDrawerLayout layout = createLayout(new TestDataProvider(SMALL_DRAWER));
+        // attached, so that the drawer is animated and the drawer listeners are notified
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        activity.setContentView(layout);
+        settleDrawer(layout);
+        long bytes = measure(new Operation() {
+            @Override
+            public void run(int iteration) {
+                layout.openDrawer();
+                settleDrawer(layout);
+                // does not allocate
+                assertTrue(layout.isDrawerOpen());
+                layout.closeDrawer();
+                settleDrawer(layout);
+            }
+        }, null);
+        assertFalse(layout.isDrawerOpen());
+        assertWithinBudget("drawer open / close", bytes, OPEN_CLOSE_BUDGET);
+    }
+
+    @Test
+    public void unchangedUpdateDoesNotAllocate() {
+        TestDataProvider provider = new TestDataProvider(LARGE_DRAWER);
+        final NavDrawerLayout layout = createLayout(provider);
+        long bytes = measure(new Operation() {
+            @Override
+            public void run(int iteration) {
+                layout.notifyDataSetChanged();
+            }
+        }, null);
+        assertWithinBudget("unchanged update", bytes, UNCHANGED_UPDATE_BUDGET);
+    }
+
+    /**
+     * Run the animation frames of the drawer until it has settled.
+     * The drawer is moved in computeScroll(), which is called when the layout is drawn.
+     */
+    private static void settleDrawer(NavDrawerLayout layout) {
+        for (int i = 0; i < SETTLE_FRAMES; i++) {
+            ShadowLooper.idleMainLooper(FRAME_MILLIS);
+            layout.computeScroll();
+        }
+    }
+
+    private long measureSelection(int size) {
+        TestDataProvider provider = new TestDataProvider(size);
+        NavDrawerLayout layout = createLayout(provider);
+        final View first = layout.getEntryView(provider.mEntries.get(1).getId());
+        final View second = layout.getEntryView(provider.mEntries.get(2).getId());
+        assertNotNull(first);
+        assertNotNull(second);
+        return measure(new Operation() {
+            @Override
+            public void run(int iteration) {
+                (iteration % 2 == 0 ? first : second).performClick();
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                // run the delayed launch outside of the counted section
+                ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            }
+        });
+    }
+
+    /**
+     * Get the average bytes allocated by the given operation.
+     *
+     * @param operation the operation
+     * @param reset     run after each operation without counting its allocations (or null)
+     * @return the allocated bytes per operation
+     */
+    private long measure(Operation operation, Runnable reset) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run(i);
+            if (reset != null) {
+                reset.run();
+            }
+        }
+        mCounter.reset();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            mCounter.resume();
+            operation.run(WARMUP_ITERATIONS + i);
+            mCounter.pause();
+            if (reset != null) {
+                reset.run();
+            }
+        }
+        return mCounter.getBytes() / MEASURED_ITERATIONS;
+    }
+
+    private static void assertWithinBudget(String name, long bytes, long budget) {
+        if (budget == 0) {
+            assertEquals(name + " must not allocate", 0, bytes);
+        } else {
+            assertTrue(name + " allocates " + bytes + " bytes per operation, budget: " + budget,
+                    bytes <= budget);
+        }
+    }
+
+    private static void assertIndependentOfSize(String name, long small, long large) {
+        // allow some noise, but no allocations proportional to the number of entries
+        long tolerance = Math.max(256, small / 10);
+        assertTrue(name + " allocates " + large + " bytes for " + LARGE_DRAWER + " entries but only "
+                + small + " bytes for " + SMALL_DRAWER + " entries", large <= small + tolerance);
+    }
+
+    private NavDrawerLayout createLayout(TestDataProvider provider) {
+        NavDrawerLayout layout = new NavDrawerLayout(mContext);
+        View content = new View(mContext);
+        layout.addView(content, new NavDrawerLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        layout.onFinishInflate();
+        layout.setDataProvider(provider);
+        layout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        layout.layout(0, 0, WIDTH, HEIGHT);
+        return layout;
+    }
+
+    private static class TestDataProvider implements NavDrawerModelProvider {
+
+        private final List<NavDrawerEntry> mEntries = new ArrayList<NavDrawerEntry>();
+        private final NavDrawerModel mModel;
+
+        TestDataProvider(int size) {
+            for (int i = 0; i < size; i++) {
+                mEntries.add(new NavDrawerEntry.Builder()
+                        .setId(i + 1)
+                        .setTitleResId(android.R.string.ok)
+                        .setIconResId(R.drawable.ic_settings_black_24dp)
+                        .setFadeOutContent(true)
+                        .build());
+            }
+            mModel = NavDrawerModel.compile(mEntries);
+        }
+
+        @Override
+        public NavDrawerModel getNavDrawerModel() {
+            return mModel;
+        }
+
+        @Override
+        public List<NavDrawerEntry> getNavDrawerItems() {
+            return mEntries;
+        }
+
+        @Override
+        public NavDrawerEntry getSelectedNavDrawerItem() {
+            return mEntries.get(0);
+        }
+    }
+}
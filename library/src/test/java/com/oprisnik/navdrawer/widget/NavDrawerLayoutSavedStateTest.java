@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer.widget;
+
+import android.content.Context;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.oprisnik.navdrawer.BuildConfig;
+import com.oprisnik.navdrawer.NavDrawerModel;
+import com.oprisnik.navdrawer.NavDrawerModelProvider;
+import com.oprisnik.navdrawer.R;
+import com.oprisnik.navdrawer.entry.NavDrawerEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Writes the saved state of the drawer to a parcel and reads it back with the class loader of the app,
+ * as it is done when the activity is recreated after process death.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class NavDrawerLayoutSavedStateTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = new ContextThemeWrapper(RuntimeEnvironment.application, R.style.Theme_AppCompat_Light);
+    }
+
+    @Test
+    public void savedStateSurvivesParcel() {
+        NavDrawerLayout layout = createLayout();
+        NavDrawerLayout.SavedState state = (NavDrawerLayout.SavedState) layout.onSaveInstanceState();
+        assertNotNull(state);
+        assertTrue(state.hasSelectedId);
+
+        NavDrawerLayout.SavedState restored = writeAndRead(state);
+
+        assertEquals(state.virtualized, restored.virtualized);
+        assertEquals(state.hasScroll, restored.hasScroll);
+        assertEquals(state.scrollY, restored.scrollY);
+        assertEquals(state.listPosition, restored.listPosition);
+        assertEquals(state.listTop, restored.listTop);
+        assertEquals(state.hasSelectedId, restored.hasSelectedId);
+        assertEquals(state.selectedId, restored.selectedId);
+        // the state of the DrawerLayout is loaded with the app class loader
+        assertNotNull(restored.getSuperState());
+        assertEquals(state.getSuperState().getClass(), restored.getSuperState().getClass());
+
+        createLayout().onRestoreInstanceState(restored);
+    }
+
+    @Test
+    public void emptySuperStateSurvivesParcel() {
+        NavDrawerLayout.SavedState state = new NavDrawerLayout.SavedState(View.BaseSavedState.EMPTY_STATE);
+        state.hasSelectedId = true;
+        state.selectedId = 42;
+
+        NavDrawerLayout.SavedState restored = writeAndRead(state);
+
+        assertEquals(View.BaseSavedState.EMPTY_STATE, restored.getSuperState());
+        assertTrue(restored.hasSelectedId);
+        assertEquals(42, restored.selectedId);
+    }
+
+    private NavDrawerLayout.SavedState writeAndRead(NavDrawerLayout.SavedState state) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeParcelable(state, 0);
+            parcel.setDataPosition(0);
+            Parcelable restored = parcel.readParcelable(NavDrawerLayout.class.getClassLoader());
+            assertTrue(restored instanceof NavDrawerLayout.SavedState);
+            return (NavDrawerLayout.SavedState) restored;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private NavDrawerLayout createLayout() {
+        NavDrawerLayout layout = new NavDrawerLayout(mContext);
+        View content = new View(mContext);
+        layout.addView(content, new NavDrawerLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        layout.onFinishInflate();
+        layout.setDataProvider(new TestDataProvider());
+        layout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        layout.layout(0, 0, WIDTH, HEIGHT);
+        return layout;
+    }
+
+    private static class TestDataProvider implements NavDrawerModelProvider {
+
+        private final List<NavDrawerEntry> mEntries = new ArrayList<NavDrawerEntry>();
+        private final NavDrawerModel mModel;
+
+        TestDataProvider() {
+            for (int i = 0; i < 3; i++) {
+                mEntries.add(new NavDrawerEntry.Builder()
+                        .setId(i + 1)
+                        .setTitleResId(android.R.string.ok)
+                        .setIconResId(R.drawable.ic_settings_black_24dp)
+                        .build());
+            }
+            mModel = NavDrawerModel.compile(mEntries);
+        }
+
+        @Override
+        public NavDrawerModel getNavDrawerModel() {
+            return mModel;
+        }
+
+        @Override
+        public List<NavDrawerEntry> getNavDrawerItems() {
+            return mEntries;
+        }
+
+        @Override
+        public NavDrawerEntry getSelectedNavDrawerItem() {
+            return mEntries.get(0);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package google.samples.apps.iosched.ui.widget;
+
+import android.content.Context;
+import android.support.annotation.IdRes;
+import android.support.annotation.LayoutRes;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import com.oprisnik.navdrawer.BuildConfig;
+import com.oprisnik.navdrawer.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the avatars of the default layouts are masked with the bitmap shader below API 21
+ * instead of a layer that is allocated on every frame.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 18)
+public class BezelImageViewTest {
+
+    @Test
+    public void headerIconUsesShader() {
+        assertShaderMasking(R.layout.navdrawer_header, android.R.id.icon);
+    }
+
+    @Test
+    public void accountAvatarUsesShader() {
+        assertShaderMasking(R.layout.navdrawer_account_item, R.id.navdrawer_account_avatar);
+    }
+
+    private static void assertShaderMasking(@LayoutRes int layoutResId, @IdRes int viewId) {
+        Context context = new ContextThemeWrapper(RuntimeEnvironment.application, R.style.Theme_AppCompat_Light);
+        View layout = LayoutInflater.from(context).inflate(layoutResId, null);
+        BezelImageView view = (BezelImageView) layout.findViewById(viewId);
+        assertTrue(view.isShaderMasking());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Counts the bytes allocated by the current thread while it is running.
+ * The counter can be paused, e.g. to exclude the work done to reset the test state.
+ * Tests that create a counter are skipped on JVMs that cannot count allocations per thread.
+ * <p/>
+ * Shared by the library tests and the benchmark module.
+ */
+public class AllocationCounter {
+
+    private final com.sun.management.ThreadMXBean mBean;
+
+    // bytes allocated by reading the counter itself (e.g. temporary ID arrays on JDK 8)
+    private final long mOverhead;
+
+    private long mBytes;
+    private long mStartBytes = -1;
+
+    public AllocationCounter() {
+        Assume.assumeTrue("Allocation counting requires a HotSpot JVM", isSupported());
+        mBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        mBean.setThreadAllocatedMemoryEnabled(true);
+        mOverhead = calibrate();
+    }
+
+    public void resume() {
+        mStartBytes = currentBytes();
+    }
+
+    public void pause() {
+        if (mStartBytes >= 0) {
+            mBytes += Math.max(0, currentBytes() - mStartBytes - mOverhead);
+            mStartBytes = -1;
+        }
+    }
+
+    public void reset() {
+        mBytes = 0;
+        mStartBytes = -1;
+    }
+
+    /**
+     * @return the bytes allocated while the counter was running
+     */
+    public long getBytes() {
+        return mBytes;
+    }
+
+    /**
+     * @return true if the JVM can count the allocations of a thread
+     */
+    public static boolean isSupported() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            return bean instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported();
+        } catch (NoClassDefFoundError e) {
+            // com.sun.management is not available
+            return false;
+        }
+    }
+
+    private long calibrate() {
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            long start = currentBytes();
+            overhead = Math.min(overhead, currentBytes() - start);
+        }
+        return overhead;
+    }
+
+    private long currentBytes() {
+        return mBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
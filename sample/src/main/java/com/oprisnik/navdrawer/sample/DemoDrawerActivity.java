@@ -1,10 +1,13 @@
 package com.oprisnik.navdrawer.sample;
 
 import android.content.Intent;
+import android.graphics.drawable.ColorDrawable;
 import android.net.Uri;
 import android.widget.Toast;
 
 import com.oprisnik.navdrawer.NavDrawerActivity;
+import com.oprisnik.navdrawer.NavDrawerModel;
+import com.oprisnik.navdrawer.NavDrawerModelProvider;
 import com.oprisnik.navdrawer.entry.NavDrawerDivider;
 import com.oprisnik.navdrawer.entry.NavDrawerDividerBeforeSubheader;
 import com.oprisnik.navdrawer.entry.NavDrawerEntry;
@@ -18,7 +21,7 @@ import java.util.List;
 /**
  * Base drawer activity that defines the drawer structure
  */
-public abstract class DemoDrawerActivity extends NavDrawerActivity {
+public abstract class DemoDrawerActivity extends NavDrawerActivity implements NavDrawerModelProvider {
 
     // Simple entry
     public static final NavDrawerEntry ENTRY1 = new NavDrawerEntry(R.string.title_entry_1,
@@ -82,21 +85,28 @@ public abstract class DemoDrawerActivity extends NavDrawerActivity {
         NAV_ITEMS.add(ENTRY_SUPPORT);
     }
 
+    // The compiled model is shared by all activities
+    public static final NavDrawerModel NAV_MODEL = NavDrawerModel.compile(NAV_ITEMS);
+
     @Override
     public List<NavDrawerEntry> getNavDrawerItems() {
         return NAV_ITEMS;
     }
 
+    @Override
+    public NavDrawerModel getNavDrawerModel() {
+        return NAV_MODEL;
+    }
+
     @Override
     public void onHeaderClicked() {
         Toast.makeText(this, "Header clicked!", Toast.LENGTH_SHORT).show();
     }
 
     protected void updateHeaderInfo() {
-        getDrawerLayout().setHeaderTitle("Jonathan Lee");
-        getDrawerLayout().setHeaderSubtitle("heyfromjonathan@gmail.com");
-//        getDrawerLayout().setHeaderIcon(getResources().getDrawable(R.drawable.ic_launcher));
-        getDrawerLayout().setHeaderBackgroundColor(getResources().getColor(R.color.primary));
+        // unchanged values are skipped, so this is cheap when called in every onResume()
+        getDrawerLayout().setHeaderInfo("Jonathan Lee", "heyfromjonathan@gmail.com", null,
+                new ColorDrawable(getResources().getColor(R.color.primary)));
     }
 
     @Override
@@ -16,6 +16,7 @@
 
 package com.oprisnik.navdrawer.sample;
 
+import android.content.Intent;
 import android.os.Bundle;
 import android.os.PersistableBundle;
 import android.support.v7.widget.Toolbar;
@@ -78,6 +79,12 @@ public class MainActivity extends DemoDrawerActivity {
         getDrawerLayout().removeHeader();
     }
 
+    public void showSingleActivity(View view) {
+        Intent intent = new Intent(this, SingleActivity.class);
+        startActivity(intent);
+        finish();
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
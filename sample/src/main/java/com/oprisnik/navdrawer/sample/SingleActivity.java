@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015 Alexander Oprisnik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.oprisnik.navdrawer.sample;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.support.v7.widget.Toolbar;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.oprisnik.navdrawer.NavDrawerFragmentActivity;
+import com.oprisnik.navdrawer.entry.NavDrawerDivider;
+import com.oprisnik.navdrawer.entry.NavDrawerEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single activity that replaces the content fragment when an entry is clicked
+ * instead of starting a new activity.
+ */
+public class SingleActivity extends NavDrawerFragmentActivity {
+
+    // Explicit IDs, so that the selected entry is restored after a configuration change.
+    // The content is faded out on click and faded in with the new fragment.
+    public static final NavDrawerEntry ENTRY1 = new NavDrawerEntry.Builder()
+            .setId(1)
+            .setTitleResId(R.string.title_entry_1)
+            .setIconResId(R.drawable.abc_ic_menu_selectall_mtrl_alpha)
+            .setFadeOutContent(true)
+            .build();
+
+    public static final NavDrawerEntry ENTRY2 = new NavDrawerEntry.Builder()
+            .setId(2)
+            .setTitleResId(R.string.title_entry_2)
+            .setIconResId(R.drawable.abc_ic_menu_copy_mtrl_am_alpha)
+            .setFadeOutContent(true)
+            .build();
+
+    // Starts another activity -> no fragment
+    public static final NavDrawerEntry ENTRY_ACTIVITIES = new NavDrawerEntry.Builder()
+            .setId(3)
+            .setTitleResId(R.string.title_multiple_activities)
+            .setIconResId(R.drawable.abc_ic_menu_cut_mtrl_alpha)
+            .setSelectOnClick(false)
+            .build();
+
+    public static final List<NavDrawerEntry> NAV_ITEMS = new ArrayList<NavDrawerEntry>();
+
+    static {
+        NAV_ITEMS.add(ENTRY1);
+        NAV_ITEMS.add(ENTRY2);
+        NAV_ITEMS.add(new NavDrawerDivider());
+        NAV_ITEMS.add(ENTRY_ACTIVITIES);
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_single);
+        overridePendingTransition(0, 0);
+
+        Toolbar tb = (Toolbar) findViewById(R.id.toolbar_actionbar);
+        if (tb != null) {
+            setSupportActionBar(tb);
+        }
+        // we do not want the up arrow (<-) here
+        showUpNavigation(false);
+    }
+
+    @Override
+    public List<NavDrawerEntry> getNavDrawerItems() {
+        return NAV_ITEMS;
+    }
+
+    @Override
+    protected NavDrawerEntry getInitialNavDrawerEntry() {
+        return ENTRY1;
+    }
+
+    @Override
+    protected Fragment createFragment(NavDrawerEntry entry) {
+        if (ENTRY1.equals(entry) || ENTRY2.equals(entry)) {
+            return EntryFragment.newInstance(entry.getTitleResId());
+        }
+        return null;
+    }
+
+    @Override
+    public void onEntrySelected(NavDrawerEntry entry) {
+        if (ENTRY_ACTIVITIES.equals(entry)) {
+            Intent intent = new Intent(this, MainActivity.class);
+            startActivity(intent);
+            finish();
+        } else {
+            super.onEntrySelected(entry);
+        }
+    }
+
+    @Override
+    public void onHeaderClicked() {
+        Toast.makeText(this, "Header clicked!", Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Content of an entry, displays the title of the entry.
+     */
+    public static class EntryFragment extends Fragment {
+
+        private static final String ARG_TITLE_RES_ID = "titleResId";
+
+        public static EntryFragment newInstance(int titleResId) {
+            EntryFragment fragment = new EntryFragment();
+            Bundle args = new Bundle();
+            args.putInt(ARG_TITLE_RES_ID, titleResId);
+            fragment.setArguments(args);
+            return fragment;
+        }
+
+        @Override
+        public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+            TextView view = (TextView) inflater.inflate(R.layout.fragment_single, container, false);
+            view.setText(getArguments().getInt(ARG_TITLE_RES_ID));
+            return view;
+        }
+    }
+}